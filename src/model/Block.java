@@ -5,7 +5,9 @@ import java.util.ArrayList;
 import java.util.List;
 
 /**
- * 表示游戏中一个方块的类，支持网格逻辑和动画控制
+ * 表示游戏中一个方块的类，支持网格逻辑和动画控制。
+ * <p>位置与尺寸以基本类型保存，getRow/getCol/getWidth/getHeight 等访问器不产生对象；
+ * 返回 Point/Dimension 的方法保留为便捷接口，每次调用都会新建对象，不宜在绘制、移动等热路径中使用。</p>
  */
 public class Block {
     public enum Type { SMALL, HORIZONTAL, VERTICAL, LARGE }
@@ -13,58 +15,89 @@ public class Block {
 
     private final int id;
     private final Type type;
-    private Point position;
+    /** 左上角所在行、列（基本类型存储，读取时不产生对象） */
+    private int row, col;
     private final float inertia;
-    private final Dimension size;
+    /** 宽度（列数）与高度（行数） */
+    private final int width, height;
 
     public Block(int id, Type type, Point start) {
         this.id = id;
         this.type = type;
-        this.position = new Point(start);
+        this.row = start.x;
+        this.col = start.y;
         switch (type) {
             case SMALL:
-                size = new Dimension(1, 1);
+                width = 1; height = 1;
                 inertia = 1.0f; break;
             case HORIZONTAL:
-                size = new Dimension(2, 1);
+                width = 2; height = 1;
                 inertia = 1.2f; break;
             case VERTICAL:
-                size = new Dimension(1, 2);
+                width = 1; height = 2;
                 inertia = 1.2f; break;
             case LARGE:
             default:
-                size = new Dimension(2, 2);
+                width = 2; height = 2;
                 inertia = 1.5f; break;
         }
     }
 
     public List<Point> getOccupiedCells() {
         List<Point> cells = new ArrayList<>();
-        for (int dr = 0; dr < size.height; dr++) {
-            for (int dc = 0; dc < size.width; dc++) {
-                cells.add(new Point(position.x + dr, position.y + dc));
+        for (int dr = 0; dr < height; dr++) {
+            for (int dc = 0; dc < width; dc++) {
+                cells.add(new Point(row + dr, col + dc));
             }
         }
         return cells;
     }
 
+    /**
+     * 判断方块是否覆盖指定单元格（不产生对象，可替代遍历 getOccupiedCells）
+     */
+    public boolean occupies(int r, int c) {
+        return r >= row && r < row + height && c >= col && c < col + width;
+    }
+
     public Point getNextPosition(Direction dir) {
+        return new Point(getNextRow(dir), getNextCol(dir));
+    }
+
+    /** 向指定方向移动一格后的左上角行 */
+    public int getNextRow(Direction dir) {
         return switch (dir) {
-            case UP    -> new Point(position.x - 1, position.y);
-            case DOWN  -> new Point(position.x + 1, position.y);
-            case LEFT  -> new Point(position.x, position.y - 1);
-            case RIGHT -> new Point(position.x, position.y + 1);
+            case UP    -> row - 1;
+            case DOWN  -> row + 1;
+            default    -> row;
+        };
+    }
+
+    /** 向指定方向移动一格后的左上角列 */
+    public int getNextCol(Direction dir) {
+        return switch (dir) {
+            case LEFT  -> col - 1;
+            case RIGHT -> col + 1;
+            default    -> col;
         };
     }
 
     public int getId() {return id;}
     public Type getType() { return type; }
-    public Point getPosition() { return new Point(position); }
-    public void setPosition(Point p) { this.position = new Point(p); }
-    public Dimension getSize() { return new Dimension(size); }
+    public int getRow() { return row; }
+    public int getCol() { return col; }
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+    public Point getPosition() { return new Point(row, col); }
+    public void setPosition(Point p) { setPosition(p.x, p.y); }
+    public void setPosition(int row, int col) {
+        this.row = row;
+        this.col = col;
+    }
+    public Dimension getSize() { return new Dimension(width, height); }
     public float getInertia() { return inertia; }
 
     public Block copy() {
-        return new Block(this.getId(), this.getType(), new Point(this.getPosition()));
+        return new Block(this.getId(), this.getType(), this.getPosition());
     }
 }
\ No newline at end of file
@@ -6,6 +6,8 @@ import java.util.*;
 
 /**
  * 棋盘模型，管理方块的移动、碰撞检测、撤销、重玩及胜利判定逻辑。
+ * <p>移动历史保存为一条时间线：撤销只移动游标，被撤销的走法可以重做；
+ * 每 {@link #CHECKPOINT_INTERVAL} 步记录一次各方块位置，跳到任意步数只需恢复检查点再重做少量走法。</p>
  */
 public class Board {
     private final Log log = Log.getInstance();
@@ -15,12 +17,35 @@ public class Board {
     private final List<Point> victoryCells;
     private final List<Point> initialPositions;
     private final Map<Integer, Block> blockMap = new HashMap<>();
-    private final Deque<MoveEntry> history = new ArrayDeque<>();
+    /** 走法时间线：前 cursor 步为已走的历史，其后为可重做的走法 */
+    private final List<MoveEntry> timeline = new ArrayList<>();
+    /** 已应用的步数 */
+    private int cursor;
+    /** 位置检查点：第 k 个为走完 k * CHECKPOINT_INTERVAL 步后各方块的左上角单元格 */
+    private final List<int[]> checkpoints = new ArrayList<>();
+    /** 占用网格：按行优先存储每个单元格上方块在 blocks 中的下标 + 1，0 表示空 */
+    private final int[] grid;
+    /** 各方块左上角单元格序号（行 * 列数 + 列），与占用网格同步维护 */
+    private final int[] heads;
+    /** 各方块宽度与高度（单元格数） */
+    private final int[] widths, heights;
+    /** 胜利区标记，按行优先存储 */
+    private final boolean[] victory;
+    /** 局面的 Zobrist 哈希，随每次移动、撤销与重置增量维护 */
+    private long hash;
+    /** 快照共享的几何描述，首次创建快照时生成 */
+    private BoardSnapshot.Shape shape;
     private Block focused;
 
     /** 单次移动记录：包含方块 ID 及移动方向 */
     public record MoveEntry(int blockId, Block.Direction dir) { }
 
+    /** 相邻位置检查点之间的步数 */
+    public static final int CHECKPOINT_INTERVAL = 64;
+
+    /** 方向枚举的缓存数组，解码走法时避免 values() 每次复制 */
+    private static final Block.Direction[] DIRECTIONS = Block.Direction.values();
+
     /**
      * 根据 GameMap 初始化棋盘，记录初始状态用于 reset
      */
@@ -34,8 +59,16 @@ public class Board {
         this.initialPositions = new ArrayList<>();
         for (Block b : blocks) {
             blockMap.put(b.getId(), b);
-            initialPositions.add(new Point(b.getPosition()));
+            initialPositions.add(b.getPosition());
         }
+        this.grid = new int[rows * cols];
+        this.heads = new int[blocks.size()];
+        this.widths = new int[blocks.size()];
+        this.heights = new int[blocks.size()];
+        this.victory = new boolean[rows * cols];
+        for (Point p : victoryCells) victory[p.x * cols + p.y] = true;
+        rebuildGrid();
+        clearHistory();
     }
 
     /**
@@ -49,24 +82,27 @@ public class Board {
         this.initialPositions = new ArrayList<>();
         for (Block b : clonedBlocks) {
             blockMap.put(b.getId(), b);
-            initialPositions.add(new Point(b.getPosition()));
+            initialPositions.add(b.getPosition());
         }
+        this.grid = new int[rows * cols];
+        this.heads = new int[blocks.size()];
+        this.widths = new int[blocks.size()];
+        this.heights = new int[blocks.size()];
+        this.victory = new boolean[rows * cols];
+        for (Point p : victoryCells) victory[p.x * cols + p.y] = true;
+        rebuildGrid();
+        clearHistory();
     }
 
     /**
-     * 在指定单元格位置查找方块
+     * 在指定单元格位置查找方块（直接查询占用网格，O(1)）
      * @param cell 目标单元格坐标
      * @return 占据该单元格的方块，若无则返回 null
      */
     public Block getBlockAt(Point cell) {
-        for (Block b : blocks) {
-            for (Point p : b.getOccupiedCells()) {
-                if (p.equals(cell)) {
-                    return b;
-                }
-            }
-        }
-        return null;
+        if (cell.x < 0 || cell.y < 0 || cell.x >= rows || cell.y >= cols) return null;
+        int slot = grid[cell.x * cols + cell.y];
+        return slot == 0 ? null : blocks.get(slot - 1);
     }
 
     /**
@@ -79,66 +115,231 @@ public class Board {
     }
 
     /**
-     * 将方块 b 向指定方向移动，先校验边界与碰撞，再记录历史并检测胜利
+     * 将方块 b 向指定方向移动，先校验边界与碰撞，再记录历史并检测胜利。
+     * 与下一步可重做的走法相同时保留重做栈，否则丢弃它
      * @return 移动成功返回 true，否则 false
      */
     public boolean moveBlock(Block b, Block.Direction dir) {
-        // 记录历史
-        history.push(new MoveEntry(b.getId(), dir));
-
-        Point next = b.getNextPosition(dir);
-        // 边界检查
-        if (next.x < 0 || next.y < 0 || next.x + b.getSize().height > rows ||
-                next.y + b.getSize().width > cols) {
-            history.pop();
-            return false;
+        int nr = b.getNextRow(dir), nc = b.getNextCol(dir);
+        if (!canPlace(b, nr, nc)) return false;
+        // 应用移动并记录历史
+        relocate(b, nr, nc);
+        record(b.getId(), dir);
+        if (isVictory()) {
+            log.info("Victory");
         }
-        // 碰撞检查
-        int dx = next.x - b.getPosition().x;
-        int dy = next.y - b.getPosition().y;
-        for (Block other : blocks) {
-            if (other == b) continue;
-            for (Point p : other.getOccupiedCells()) {
-                for (Point q : b.getOccupiedCells()) {
-                    Point moved = new Point(q.x + dx, q.y + dy);
-                    if (p.equals(moved)) {
-                        history.pop();
-                        return false;
-                    }
-                }
-            }
+        return true;
+    }
+
+    /**
+     * 一次遍历校验并应用整段走法，供读档等批量回放使用。
+     * <p>每步按 ID 查表定位方块、在占用网格上做边界与碰撞检查，与 {@link #moveBlock} 规则相同，
+     * 但不逐步记录日志和检测胜利，因此回放数万步也只需数毫秒。</p>
+     * @param moves 按时间顺序排列的走法【最旧→最新】
+     * @return 第一个非法走法的下标（其前的走法均已应用）；全部合法时返回 moves.size()
+     */
+    public int applyAll(List<MoveEntry> moves) {
+        for (int k = 0; k < moves.size(); k++) {
+            MoveEntry me = moves.get(k);
+            Block b = blockMap.get(me.blockId());
+            if (b == null || me.dir() == null) return k;
+            int nr = b.getNextRow(me.dir()), nc = b.getNextCol(me.dir());
+            if (!canPlace(b, nr, nc)) return k;
+            relocate(b, nr, nc);
+            record(b.getId(), me.dir());
         }
-        // 应用移动
-        b.setPosition(next);
         if (isVictory()) {
             log.info("Victory");
         }
+        return moves.size();
+    }
+
+    // 边界与碰撞检查：方块 b 移到 (row, col) 后覆盖的格子只能为空或属于 b 自身
+    private boolean canPlace(Block b, int row, int col) {
+        int width = b.getWidth(), height = b.getHeight();
+        if (row < 0 || col < 0 || row + height > rows || col + width > cols) {
+            return false;
+        }
+        int self = indexOf(b) + 1;
+        for (int r = row; r < row + height; r++) {
+            for (int c = col; c < col + width; c++) {
+                int slot = grid[r * cols + c];
+                if (slot != 0 && slot != self) {
+                    return false;
+                }
+            }
+        }
         return true;
     }
 
+    // 把刚走的一步写入时间线：与下一步可重做的走法相同时保留重做栈，否则丢弃它
+    private void record(int blockId, Block.Direction dir) {
+        if (cursor < timeline.size()) {
+            MoveEntry redo = timeline.get(cursor);
+            if (redo.blockId() != blockId || redo.dir() != dir) truncate(cursor);
+        }
+        if (cursor == timeline.size()) timeline.add(new MoveEntry(blockId, dir));
+        advanced();
+    }
+
+    /**
+     * 把当前局面的全部合法走法写入调用方提供的缓冲区，不分配任何对象。
+     * <p>从空格出发扫描：空格四邻的方块若朝该空格移动，需要的整条边都为空即合法；
+     * 每个走法只在这条边的第一个空格处记录一次，因此不会重复。</p>
+     * @param buf 输出缓冲区，长度至少为方块数 × 4；走法编码为 {@code 方块ID << 2 | 方向序号}，
+     *            可用 {@link #moveBlockId(int)} 与 {@link #moveDirection(int)} 解码
+     * @return 写入的走法数
+     */
+    public int legalMoves(int[] buf) {
+        int n = 0;
+        for (int cell = 0; cell < grid.length; cell++) {
+            if (grid[cell] != 0) continue;
+            int r = cell / cols, c = cell % cols;
+            // 上方方块向下、下方方块向上：空格须为所需横边的最左格
+            if (r > 0 && grid[cell - cols] != 0) n = vertical(grid[cell - cols] - 1, r, c, Block.Direction.DOWN, buf, n);
+            if (r < rows - 1 && grid[cell + cols] != 0) n = vertical(grid[cell + cols] - 1, r, c, Block.Direction.UP, buf, n);
+            // 左侧方块向右、右侧方块向左：空格须为所需竖边的最上格
+            if (c > 0 && grid[cell - 1] != 0) n = horizontal(grid[cell - 1] - 1, r, c, Block.Direction.RIGHT, buf, n);
+            if (c < cols - 1 && grid[cell + 1] != 0) n = horizontal(grid[cell + 1] - 1, r, c, Block.Direction.LEFT, buf, n);
+        }
+        return n;
+    }
+
+    // 方块 i 沿竖直方向移入第 r 行：要求 [左列, 左列 + 宽) 全空
+    private int vertical(int i, int r, int c, Block.Direction dir, int[] buf, int n) {
+        int left = heads[i] % cols;
+        if (c != left) return n;
+        for (int k = 1; k < widths[i]; k++) {
+            if (grid[r * cols + left + k] != 0) return n;
+        }
+        buf[n] = blocks.get(i).getId() << 2 | dir.ordinal();
+        return n + 1;
+    }
+
+    // 方块 i 沿水平方向移入第 c 列：要求 [上行, 上行 + 高) 全空
+    private int horizontal(int i, int r, int c, Block.Direction dir, int[] buf, int n) {
+        int top = heads[i] / cols;
+        if (r != top) return n;
+        for (int k = 1; k < heights[i]; k++) {
+            if (grid[(top + k) * cols + c] != 0) return n;
+        }
+        buf[n] = blocks.get(i).getId() << 2 | dir.ordinal();
+        return n + 1;
+    }
+
+    /** 解码 {@link #legalMoves(int[])} 输出的走法：方块 ID */
+    public static int moveBlockId(int move) {
+        return move >>> 2;
+    }
+
+    /** 解码 {@link #legalMoves(int[])} 输出的走法：移动方向 */
+    public static Block.Direction moveDirection(int move) {
+        return DIRECTIONS[move & 3];
+    }
+
     /**
      * 撤销上一次移动，仅更新位置不触发历史记录
      * @return 撤销成功返回 true，否则 false
      */
     public boolean undo() {
-        if (history.isEmpty()) return false;
-        MoveEntry last = history.pop();
+        if (cursor == 0) return false;
+        MoveEntry last = timeline.get(cursor - 1);
         Block b = findBlockById(last.blockId());
         if (b != null) {
-            b.setPosition(b.getNextPosition(opposite(last.dir())));
+            Block.Direction back = opposite(last.dir());
+            relocate(b, b.getNextRow(back), b.getNextCol(back));
+            cursor--;
             return true;
         }
         return false;
     }
 
+    /**
+     * 重做最近一次撤销的移动
+     * @return 重做成功返回 true，没有可重做的移动时返回 false
+     */
+    public boolean redo() {
+        if (cursor == timeline.size()) return false;
+        MoveEntry next = timeline.get(cursor);
+        Block b = findBlockById(next.blockId());
+        relocate(b, b.getNextRow(next.dir()), b.getNextCol(next.dir()));
+        advanced();
+        return true;
+    }
+
+    /**
+     * 跳到时间线上的第 index 步（0 为初始局面），历史与重做栈都保留。
+     * 距离较远时先恢复不超过目标的最近检查点，再至多重做 {@link #CHECKPOINT_INTERVAL} - 1 步
+     * @param index 目标步数，超出 [0, 时间线长度] 时取边界值
+     */
+    public void seek(int index) {
+        index = Math.max(0, Math.min(index, timeline.size()));
+        if (Math.abs(index - cursor) >= CHECKPOINT_INTERVAL) {
+            int k = index / CHECKPOINT_INTERVAL;
+            int[] heads = checkpoints.get(k);
+            for (int i = 0; i < blocks.size(); i++) blocks.get(i).setPosition(heads[i] / cols, heads[i] % cols);
+            rebuildGrid();
+            cursor = k * CHECKPOINT_INTERVAL;
+        }
+        while (cursor > index) undo();
+        while (cursor < index) redo();
+    }
+
+    /** 已走的步数（历史长度） */
+    public int getMoveCount() {
+        return cursor;
+    }
+
+    /** 时间线总长度：已走步数加可重做步数 */
+    public int getTimelineSize() {
+        return timeline.size();
+    }
+
+    // 前进一步后推进游标，必要时记录新的检查点
+    private void advanced() {
+        cursor++;
+        if (cursor % CHECKPOINT_INTERVAL == 0 && checkpoints.size() == cursor / CHECKPOINT_INTERVAL) {
+            checkpoints.add(heads.clone());
+        }
+    }
+
+    // 丢弃第 from 步起的重做走法及其后的检查点
+    private void truncate(int from) {
+        timeline.subList(from, timeline.size()).clear();
+        int keep = from / CHECKPOINT_INTERVAL + 1;
+        if (checkpoints.size() > keep) checkpoints.subList(keep, checkpoints.size()).clear();
+    }
+
+    // 以当前局面为起点清空时间线与检查点
+    private void clearHistory() {
+        timeline.clear();
+        cursor = 0;
+        checkpoints.clear();
+        checkpoints.add(heads.clone());
+    }
+
     /**
      * 重玩：将所有方块还原到初始位置，并清空历史与焦点
      */
     public void reset() {
-        history.clear();
         for (int i = 0; i < blocks.size(); i++) {
-            blocks.get(i).setPosition(new Point(initialPositions.get(i)));
+            blocks.get(i).setPosition(initialPositions.get(i));
+        }
+        rebuildGrid();
+        clearHistory();
+        focused = null;
+    }
+
+    /**
+     * 按单元格序号（行 * 列数 + 列）整体设置各方块位置，供 StateCodec 还原状态使用。
+     * 与 reset 一样清空历史与焦点，但不改变初始位置
+     */
+    void restoreCells(int[] cells) {
+        for (int i = 0; i < blocks.size(); i++) {
+            blocks.get(i).setPosition(cells[i] / cols, cells[i] % cols);
         }
+        rebuildGrid();
+        clearHistory();
         focused = null;
     }
 
@@ -178,9 +379,9 @@ public class Board {
     public boolean isVictory() {
         for (Block b : blocks) {
             if (b.getType() == Block.Type.LARGE) {
-                for (Point p : b.getOccupiedCells()) {
-                    if (!victoryCells.contains(p)) {
-                        return false;
+                for (int r = b.getRow(); r < b.getRow() + b.getHeight(); r++) {
+                    for (int c = b.getCol(); c < b.getCol() + b.getWidth(); c++) {
+                        if (!victory[r * cols + c]) return false;
                     }
                 }
                 return true;
@@ -198,13 +399,73 @@ public class Board {
         return new Board(rows, cols, cloned, victoryCells);
     }
 
+    /**
+     * 获取当前局面的 64 位 Zobrist 哈希（O(1)，无需扫描方块）。
+     * 键只取决于方块类型与左上角单元格，同类型方块互换位置后哈希不变
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * 获取当前局面的不可变快照；同一棋盘的快照共享几何描述，在快照上走一步只需 O(1)
+     */
+    public BoardSnapshot snapshot() {
+        if (shape == null) shape = new BoardSnapshot.Shape(this);
+        return BoardSnapshot.of(this, shape);
+    }
+
     /**
      * 获取按时间顺序排列的移动历史【最旧→最新】
      */
     public List<MoveEntry> getHistory() {
-        List<MoveEntry> list = new ArrayList<>(history);
-        Collections.reverse(list);
-        return list;
+        return new ArrayList<>(timeline.subList(0, cursor));
+    }
+
+    // 获取方块在 blocks 中的下标，优先通过占用网格 O(1) 定位
+    private int indexOf(Block b) {
+        int slot = grid[b.getRow() * cols + b.getCol()];
+        if (slot != 0 && blocks.get(slot - 1) == b) return slot - 1;
+        return blocks.indexOf(b);
+    }
+
+    // 将方块移动到新位置，并增量更新占用网格
+    private void relocate(Block b, int row, int col) {
+        int slot = indexOf(b) + 1;
+        int from = b.getRow() * cols + b.getCol();
+        fill(b.getRow(), b.getCol(), b.getWidth(), b.getHeight(), 0);
+        b.setPosition(row, col);
+        fill(row, col, b.getWidth(), b.getHeight(), slot);
+        heads[slot - 1] = row * cols + col;
+        hash ^= zobrist(b.getType(), from) ^ zobrist(b.getType(), row * cols + col);
+    }
+
+    // 按所有方块当前位置重建占用网格、几何数组与 Zobrist 哈希
+    private void rebuildGrid() {
+        Arrays.fill(grid, 0);
+        hash = 0;
+        for (int i = 0; i < blocks.size(); i++) {
+            Block b = blocks.get(i);
+            fill(b.getRow(), b.getCol(), b.getWidth(), b.getHeight(), i + 1);
+            heads[i] = b.getRow() * cols + b.getCol();
+            widths[i] = b.getWidth();
+            heights[i] = b.getHeight();
+            hash ^= zobrist(b.getType(), heads[i]);
+        }
+    }
+
+    // （方块类型, 单元格）的 Zobrist 键：由两者确定性混合得到，不同棋盘实例间可直接比较
+    static long zobrist(Block.Type type, int cell) {
+        return StateCodec.mix(((long) type.ordinal() << 32 | cell) + 0x9E3779B97F4A7C15L);
+    }
+
+    // 将方块覆盖的区域写为指定占用值
+    private void fill(int row, int col, int width, int height, int slot) {
+        for (int r = row; r < row + height; r++) {
+            for (int c = col; c < col + width; c++) {
+                grid[r * cols + c] = slot;
+            }
+        }
     }
 
     // 获取方向相反的枚举
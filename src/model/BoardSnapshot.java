@@ -0,0 +1,192 @@
+package model;
+
+import java.awt.Point;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 不可变的棋盘局面快照，用于假设分析、提示预览、撤销树等需要分支的场景。
+ * <p>同一棋盘派生出的全部快照共享一份几何描述（行列数、方块尺寸、ID 索引、胜利区），
+ * 每个快照只持有压缩的方块位置（{@link StateCodec} 编码）、占用位图与 Zobrist 哈希，
+ * 经典 4×5 布局下各只需 1 个 long。因此走一步只复制这几个 long，与方块数无关，
+ * 一万步的会话逐步保留快照也只占约 1 MB。</p>
+ * <p>哈希与 {@link Board#getHash()} 采用相同的键，同一局面的快照与棋盘哈希相等。</p>
+ */
+public final class BoardSnapshot {
+    /** 同一棋盘所有快照共享的几何描述 */
+    static final class Shape {
+        final int rows;
+        final int cols;
+        final StateCodec codec;
+        final Block.Type[] types;
+        final int[] widths;
+        final int[] heights;
+        /** 方块 ID 到下标的映射，不存在为 -1 */
+        final int[] indexById;
+        final boolean[] victory;
+        final int large;
+
+        Shape(Board board) {
+            List<Block> blocks = board.getBlocks();
+            int n = blocks.size();
+            this.rows = board.getRows();
+            this.cols = board.getCols();
+            this.codec = new StateCodec(board);
+            this.types = new Block.Type[n];
+            this.widths = new int[n];
+            this.heights = new int[n];
+            int maxId = 0;
+            for (Block b : blocks) maxId = Math.max(maxId, b.getId());
+            this.indexById = new int[maxId + 1];
+            Arrays.fill(indexById, -1);
+            int largeIdx = -1;
+            for (int i = 0; i < n; i++) {
+                Block b = blocks.get(i);
+                types[i] = b.getType();
+                widths[i] = b.getWidth();
+                heights[i] = b.getHeight();
+                if (b.getId() >= 0) indexById[b.getId()] = i;
+                if (largeIdx < 0 && b.getType() == Block.Type.LARGE) largeIdx = i;
+            }
+            this.large = largeIdx;
+            this.victory = new boolean[rows * cols];
+            for (Point p : board.getVictoryCells()) victory[p.x * cols + p.y] = true;
+        }
+
+        int indexOf(int id) {
+            return id >= 0 && id < indexById.length ? indexById[id] : -1;
+        }
+    }
+
+    private final Shape shape;
+    /** 压缩的方块位置，创建后不再修改 */
+    private final long[] cells;
+    /** 占用位图：第 k 位对应单元格 k，创建后不再修改 */
+    private final long[] occupied;
+    private final long hash;
+
+    private BoardSnapshot(Shape shape, long[] cells, long[] occupied, long hash) {
+        this.shape = shape;
+        this.cells = cells;
+        this.occupied = occupied;
+        this.hash = hash;
+    }
+
+    /**
+     * 按棋盘当前局面创建快照（O(方块数)，之后的派生快照共享其几何描述）
+     */
+    static BoardSnapshot of(Board board, Shape shape) {
+        long[] cells = shape.codec.encode(board);
+        long[] occupied = new long[(shape.rows * shape.cols + 63) >>> 6];
+        for (int i = 0; i < shape.types.length; i++) {
+            int head = shape.codec.get(cells, 0, i);
+            mark(occupied, shape, head / shape.cols, head % shape.cols, shape.widths[i], shape.heights[i]);
+        }
+        return new BoardSnapshot(shape, cells, occupied, board.getHash());
+    }
+
+    /**
+     * 在快照上走一步，返回新快照，自身不变
+     * @param blockId 方块 ID
+     * @param dir     移动方向
+     * @return 新快照；方块不存在、越界或碰撞时返回 null
+     */
+    public BoardSnapshot move(int blockId, Block.Direction dir) {
+        int i = shape.indexOf(blockId);
+        if (i < 0) return null;
+        int cols = shape.cols;
+        int head = shape.codec.get(cells, 0, i);
+        int r = head / cols, c = head % cols, w = shape.widths[i], h = shape.heights[i];
+        int nr = r, nc = c;
+        switch (dir) {
+            case UP -> nr--;
+            case DOWN -> nr++;
+            case LEFT -> nc--;
+            case RIGHT -> nc++;
+        }
+        if (nr < 0 || nc < 0 || nr + h > shape.rows || nc + w > cols) return null;
+        // 目标区域内不属于原位置的格子必须为空
+        for (int rr = nr; rr < nr + h; rr++) {
+            for (int cc = nc; cc < nc + w; cc++) {
+                boolean own = rr >= r && rr < r + h && cc >= c && cc < c + w;
+                if (!own && bit(occupied, rr * cols + cc)) return null;
+            }
+        }
+        long[] nextOccupied = occupied.clone();
+        for (int rr = r; rr < r + h; rr++) {
+            for (int cc = c; cc < c + w; cc++) nextOccupied[(rr * cols + cc) >>> 6] &= ~(1L << (rr * cols + cc));
+        }
+        mark(nextOccupied, shape, nr, nc, w, h);
+        long[] nextCells = cells.clone();
+        int target = nr * cols + nc;
+        shape.codec.set(nextCells, 0, i, target);
+        long nextHash = hash ^ Board.zobrist(shape.types[i], head) ^ Board.zobrist(shape.types[i], target);
+        return new BoardSnapshot(shape, nextCells, nextOccupied, nextHash);
+    }
+
+    /**
+     * 按移动记录走一步
+     * @return 新快照；走法非法时返回 null
+     */
+    public BoardSnapshot move(Board.MoveEntry entry) {
+        return move(entry.blockId(), entry.dir());
+    }
+
+    /**
+     * 把快照局面写回棋盘（清空棋盘的历史与焦点，棋盘须与创建快照的棋盘布局一致）
+     */
+    public void restore(Board board) {
+        shape.codec.decode(cells, 0, board);
+    }
+
+    /**
+     * 方块左上角单元格序号（行 * 列数 + 列）
+     * @return 序号；方块不存在时返回 -1
+     */
+    public int cellOf(int blockId) {
+        int i = shape.indexOf(blockId);
+        return i < 0 ? -1 : shape.codec.get(cells, 0, i);
+    }
+
+    /**
+     * 判断快照局面是否胜利（LARGE 方块完全覆盖胜利区）
+     */
+    public boolean isVictory() {
+        if (shape.large < 0) return false;
+        int head = shape.codec.get(cells, 0, shape.large);
+        int r0 = head / shape.cols, c0 = head % shape.cols;
+        for (int r = r0; r < r0 + shape.heights[shape.large]; r++) {
+            for (int c = c0; c < c0 + shape.widths[shape.large]; c++) {
+                if (!shape.victory[r * shape.cols + c]) return false;
+            }
+        }
+        return true;
+    }
+
+    /** 局面的 64 位 Zobrist 哈希，与 {@link Board#getHash()} 一致 */
+    public long getHash() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof BoardSnapshot other)) return false;
+        return shape == other.shape && Arrays.equals(cells, other.cells);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(StateCodec.hash(cells, 0, cells.length));
+    }
+
+    private static boolean bit(long[] bits, int k) {
+        return (bits[k >>> 6] & (1L << k)) != 0;
+    }
+
+    private static void mark(long[] bits, Shape shape, int r0, int c0, int w, int h) {
+        for (int r = r0; r < r0 + h; r++) {
+            for (int c = c0; c < c0 + w; c++) bits[(r * shape.cols + c) >>> 6] |= 1L << (r * shape.cols + c);
+        }
+    }
+}
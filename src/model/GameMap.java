@@ -7,6 +7,7 @@ import java.io.BufferedReader;
 import java.io.FileInputStream;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.StringReader;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.*;
@@ -40,17 +41,28 @@ public class GameMap {
     private boolean isValid = true;
     /** 地图文件名（完整路径），用于标识地图名称 */
     private final String mapName;
+    /** 时间与步数限制是否已由最优解推导（否则为地图文件首行声明的值） */
+    private boolean derivedLimits = false;
 
     /**
      * 通过指定地图文件路径初始化地图对象
      * @param filename 地图文件路径（包含文件名）
      */
     public GameMap(String filename) {
+        this(filename, null);
+    }
+
+    /**
+     * 通过地图文本内容初始化地图对象（不读取文件，用于生成器在内存中校验布局）
+     * @param filename 地图名称
+     * @param content  地图文件内容；为 null 时从 filename 指定的文件读取
+     */
+    public GameMap(String filename, String content) {
         this.mapName = filename;
         List<String[]> rawLines = new ArrayList<>();
 
         // 读取文件原始内容
-        try (BufferedReader br = new BufferedReader(new FileReader(filename))) {
+        try (BufferedReader br = new BufferedReader(content == null ? new FileReader(filename) : new StringReader(content))) {
             String firstLine = br.readLine();
             if (firstLine == null) {
                 log.warn("地图文件 " + filename + " 不能为空");
@@ -322,4 +334,24 @@ public class GameMap {
     public int getMoveLimit() {
         return moveLimit;
     }
+
+    /**
+     * 按最少步数推导步数与时间限制，取代地图文件首行声明的值
+     * @param optimal        最少步数
+     * @param slackPercent   步数余量，占最少步数的百分比（向上取整，至少 1 步）
+     * @param secondsPerMove 每步可用的秒数
+     */
+    public void deriveLimits(int optimal, int slackPercent, int secondsPerMove) {
+        moveLimit = optimal + Math.max(1, (optimal * slackPercent + 99) / 100);
+        timeLimit = moveLimit * secondsPerMove;
+        derivedLimits = true;
+    }
+
+    /**
+     * 获取限制是否已由最优解推导
+     * @return true表示限制来自 {@link #deriveLimits}，false表示来自地图文件
+     */
+    public boolean hasDerivedLimits() {
+        return derivedLimits;
+    }
 }
\ No newline at end of file
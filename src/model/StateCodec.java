@@ -0,0 +1,167 @@
+package model;
+
+import java.util.List;
+
+/**
+ * 棋盘状态压缩编解码器。
+ * <p>按 Board 中方块的固定顺序，为每个方块记录其左上角单元格序号（行 * 列数 + 列），
+ * 每个序号占 bits 位，依次打包进 long 数组；字段不跨 long 存放，便于 O(1) 读写单个方块。</p>
+ * <p>同一布局（行列数与方块集合一致）下所有状态的编码长度相同，且编码与状态一一对应，
+ * 可直接用于哈希与比较。4×5 的经典布局只需 1 个 long（words == 1），此时该 long 即为 64 位键。</p>
+ */
+public final class StateCodec {
+    /** 棋盘行数 */
+    private final int rows;
+    /** 棋盘列数 */
+    private final int cols;
+    /** 方块数量 */
+    private final int count;
+    /** 每个方块位置字段所占位数 */
+    private final int bits;
+    /** 每个 long 可容纳的字段数 */
+    private final int perWord;
+    /** 单个状态占用的 long 数 */
+    private final int words;
+    /** 字段掩码 */
+    private final long mask;
+
+    /**
+     * 根据棋盘的行列数与方块集合构造编解码器
+     * @param board 参考棋盘，仅读取其几何信息
+     */
+    public StateCodec(Board board) {
+        this(board.getRows(), board.getCols(), board.getBlocks().size());
+    }
+
+    /**
+     * 直接按几何参数构造编解码器（用于只包含部分方块的抽象状态）
+     * @param rows  行数
+     * @param cols  列数
+     * @param count 方块数量
+     */
+    public StateCodec(int rows, int cols, int count) {
+        this.rows = rows;
+        this.cols = cols;
+        this.count = count;
+        int cells = Math.max(2, rows * cols);
+        this.bits = 32 - Integer.numberOfLeadingZeros(cells - 1);
+        this.perWord = 64 / bits;
+        this.words = Math.max(1, (count + perWord - 1) / perWord);
+        this.mask = (1L << bits) - 1;
+    }
+
+    /** 单个状态占用的 long 数 */
+    public int getWords() { return words; }
+    /** 每个方块位置字段的位数 */
+    public int getBits() { return bits; }
+    /** 编码覆盖的方块数量 */
+    public int getBlockCount() { return count; }
+
+    /**
+     * 第 w 个 long 实际使用的低位位数（其余高位恒为 0），供按字节紧凑存放状态
+     */
+    public int wordBits(int w) {
+        return Math.max(0, Math.min(perWord, count - w * perWord)) * bits;
+    }
+
+    /**
+     * 将棋盘当前状态编码为新的 long 数组
+     */
+    public long[] encode(Board board) {
+        long[] dst = new long[words];
+        encode(board, dst, 0);
+        return dst;
+    }
+
+    /**
+     * 将棋盘当前状态一次遍历编码到 dst[off, off + words)
+     */
+    public void encode(Board board, long[] dst, int off) {
+        List<Block> blocks = board.getBlocks();
+        for (int w = 0; w < words; w++) dst[off + w] = 0L;
+        for (int i = 0; i < count; i++) {
+            Block b = blocks.get(i);
+            set(dst, off, i, b.getRow() * cols + b.getCol());
+        }
+    }
+
+    /**
+     * 单字编码的快捷方式，返回 64 位状态键
+     * @throws IllegalStateException 当前布局需要多个 long 时抛出
+     */
+    public long key(Board board) {
+        if (words != 1) {
+            throw new IllegalStateException("当前布局需要 " + words + " 个 long，无法压缩为单个键");
+        }
+        long[] buf = new long[1];
+        encode(board, buf, 0);
+        return buf[0];
+    }
+
+    /**
+     * 将编码状态还原到棋盘：设置每个方块位置并清空历史与焦点
+     */
+    public void decode(long[] src, int off, Board board) {
+        int[] cells = new int[count];
+        for (int i = 0; i < count; i++) cells[i] = get(src, off, i);
+        board.restoreCells(cells);
+    }
+
+    /**
+     * 读取第 i 个方块的左上角单元格序号
+     */
+    public int get(long[] s, int off, int i) {
+        int shift = (i % perWord) * bits;
+        return (int) ((s[off + i / perWord] >>> shift) & mask);
+    }
+
+    /**
+     * 写入第 i 个方块的左上角单元格序号
+     */
+    public void set(long[] s, int off, int i, int cell) {
+        int shift = (i % perWord) * bits;
+        int w = off + i / perWord;
+        s[w] = (s[w] & ~(mask << shift)) | ((long) cell << shift);
+    }
+
+    /**
+     * 计算编码状态的 64 位哈希（逐字混合）
+     */
+    public static long hash(long[] s, int off, int words) {
+        long h = 0x9E3779B97F4A7C15L;
+        for (int w = 0; w < words; w++) {
+            h = mix(h ^ s[off + w]);
+        }
+        return h;
+    }
+
+    /**
+     * 单个 long 的雪崩混合（SplitMix64 终结函数）
+     */
+    public static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * 比较两个编码状态是否相同
+     */
+    public static boolean equals(long[] a, int aOff, long[] b, int bOff, int words) {
+        for (int w = 0; w < words; w++) {
+            if (a[aOff + w] != b[bOff + w]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * 按无符号字典序比较两个编码状态
+     */
+    public static int compare(long[] a, int aOff, long[] b, int bOff, int words) {
+        for (int w = 0; w < words; w++) {
+            int c = Long.compareUnsigned(a[aOff + w], b[bOff + w]);
+            if (c != 0) return c;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,108 @@
+package solver;
+
+import model.Board;
+import util.Log;
+
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 单线程广度优先求解器：在规范化的压缩状态上逐层扩展，首次遇到的胜利状态即为最少步数解。
+ * 去重表按插入顺序存放状态，直接作为 BFS 队列使用。
+ */
+public class BfsSolver implements Solver {
+    /** 默认最多存储的状态数，超出后放弃搜索 */
+    public static final int DEFAULT_MAX_STATES = 1 << 22;
+
+    private final Log log = Log.getInstance();
+    private final int maxStates;
+    private final BooleanSupplier stop;
+
+    public BfsSolver() {
+        this(DEFAULT_MAX_STATES);
+    }
+
+    /**
+     * @param maxStates 最多存储的状态数，超出后视为无解并在统计中标记 aborted；线程被中断时同样处理
+     */
+    public BfsSolver(int maxStates) {
+        this(maxStates, () -> false);
+    }
+
+    /**
+     * @param maxStates 最多存储的状态数，超出后视为无解并在统计中标记 aborted
+     * @param stop      每扩展一个状态查询一次，返回 true 时同样放弃并标记 aborted（用于协作式取消，不中断线程）
+     */
+    public BfsSolver(int maxStates, BooleanSupplier stop) {
+        this.maxStates = maxStates;
+        this.stop = stop;
+    }
+
+    @Override
+    public Solution solve(Board board) {
+        long begin = System.nanoTime();
+        Puzzle puzzle = new Puzzle(board);
+        int words = puzzle.getWords();
+        StateTable table = new StateTable(words, 1 << 12);
+        Puzzle.Cursor cursor = puzzle.cursor();
+        int[] buf = new int[puzzle.getBlockCount() * 4];
+        long[] next = new long[words];
+        long expanded = 0;
+
+        long[] start = puzzle.encode(board);
+        long[] root = start.clone();
+        puzzle.canonicalize(root, 0);
+        table.add(root, 0, -1, -1);
+        int goal = puzzle.isGoal(start, 0) ? 0 : -1;
+
+        boolean aborted = false;
+        for (int head = 0; goal < 0 && head < table.size(); head++) {
+            // 超出规模上限、收到停止请求（如提示请求被取消）或所在线程被中断时放弃
+            if (table.size() > maxStates || stop.getAsBoolean() || Thread.currentThread().isInterrupted()) {
+                aborted = true;
+                break;
+            }
+            long[] keys = table.keys();
+            cursor.load(keys, head * words);
+            expanded++;
+            int n = cursor.moves(buf);
+            for (int k = 0; k < n; k++) {
+                puzzle.apply(keys, head * words, buf[k], next, 0);
+                puzzle.canonicalize(next, 0);
+                int index = table.add(next, 0, head, buf[k]);
+                if (index >= 0 && puzzle.isGoal(next, 0)) {
+                    goal = index;
+                    break;
+                }
+            }
+        }
+
+        Solution.Stats stats = new Solution.Stats(expanded, table.size(), table.bytes(), System.nanoTime() - begin);
+        if (aborted) stats.extras().put("aborted", 1);
+        if (puzzle.getSymmetry() == Puzzle.Symmetry.MIRROR) stats.extras().put("mirror", 1);
+        if (goal < 0) {
+            log.info("BFS 无解：" + stats);
+            return new Solution(false, List.of(), stats);
+        }
+        List<Board.MoveEntry> moves = path(puzzle, table, start, goal);
+        log.info("BFS 求得 " + moves.size() + " 步最优解：" + stats);
+        return new Solution(true, moves, stats);
+    }
+
+    /**
+     * 沿父指针从目标回溯到起点，再把规范状态上的走法映射回真实方块 ID
+     * @param start 未规范化的真实起始状态
+     */
+    static List<Board.MoveEntry> path(Puzzle puzzle, StateTable table, long[] start, int index) {
+        int words = puzzle.getWords();
+        int depth = 0;
+        for (int i = index; table.parent(i) >= 0; i = table.parent(i)) depth++;
+        long[] parents = new long[depth * words];
+        int[] moves = new int[depth];
+        for (int i = index, k = depth - 1; k >= 0; i = table.parent(i), k--) {
+            System.arraycopy(table.keys(), table.parent(i) * words, parents, k * words, words);
+            moves[k] = table.move(i);
+        }
+        return puzzle.realize(start, parents, moves);
+    }
+}
@@ -0,0 +1,234 @@
+package solver;
+
+import model.Board;
+import util.Log;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 双向广度优先求解器。
+ * <p>Board.isVictory 只要求 LARGE 方块覆盖胜利区，胜利状态是一个集合：后向搜索以全部满足
+ * 胜利条件的规范布局为第 0 层，前向搜索以起始布局为第 0 层，每轮整层扩展当前前沿较小的一侧，
+ * 一旦某层出现交汇即取该层中前后向深度之和最小的交汇点，得到与普通 BFS 相同的最优步数。</p>
+ * <p>胜利布局中大多与起点不连通，全部放入后向表的代价往往远超前向搜索本身，因此后向一侧延迟播种：
+ * 只有当胜利布局数不超过前向前沿时才建立后向表，在此之前前向扩展直接用胜利判定代替与后向第 0 层的交汇，
+ * 此时的搜索与普通 BFS 完全相同，不会多存任何状态。</p>
+ * <p>走法可逆，因此后向搜索与前向搜索使用同一套走法生成。</p>
+ */
+public class BidirectionalSolver implements Solver {
+    private final Log log = Log.getInstance();
+    private final int maxStates;
+    private final boolean compareWithBfs;
+
+    public BidirectionalSolver() {
+        this(BfsSolver.DEFAULT_MAX_STATES, false);
+    }
+
+    /**
+     * @param maxStates      两侧合计最多存储的状态数，超出后视为无解并在统计中标记 aborted
+     * @param compareWithBfs 为 true 时额外运行一次 {@link BfsSolver}，在统计中给出加速比
+     */
+    public BidirectionalSolver(int maxStates, boolean compareWithBfs) {
+        this.maxStates = maxStates;
+        this.compareWithBfs = compareWithBfs;
+    }
+
+    @Override
+    public Solution solve(Board board) {
+        long begin = System.nanoTime();
+        Puzzle puzzle = new Puzzle(board);
+        int words = puzzle.getWords();
+        long[] start = puzzle.encode(board);
+
+        Side forward = new Side(words);
+        long[] root = start.clone();
+        puzzle.canonicalize(root, 0);
+        forward.table.add(root, 0, -1, -1);
+        forward.endLevel();
+
+        Side backward = null;
+        int goals = 0;
+        // 已知胜利布局数的下界：前向前沿未超过它之前无需重新计数
+        int goalsAtLeast = 0;
+
+        Meet meet = null;
+        boolean aborted = false;
+        if (puzzle.isGoal(root, 0)) {
+            meet = new Meet(true, -1, -1, -1, 0);
+        }
+        Puzzle.Cursor cursor = puzzle.cursor();
+        int[] buf = new int[puzzle.getBlockCount() * 4];
+        long[] next = new long[words];
+        while (meet == null && !aborted && forward.frontier() > 0 && (backward == null || backward.frontier() > 0)) {
+            if (backward == null && forward.frontier() >= goalsAtLeast) {
+                // 播种代价计入选择：胜利布局不多于前向前沿时才值得建立后向表；
+                // 计数至多枚举两倍前沿，超出时记下下界，前沿翻倍前不再重数
+                int f = forward.frontier();
+                int limit = (int) Math.min(Integer.MAX_VALUE, 2L * f + 1);
+                goalsAtLeast = puzzle.goalStates(g -> { }, limit);
+                if (goalsAtLeast <= f) {
+                    Side seeded = new Side(words);
+                    goals = puzzle.goalStates(g -> seeded.table.add(g, 0, -1, -1), limit);
+                    seeded.endLevel();
+                    backward = seeded;
+                }
+            }
+            boolean fwd = backward == null || forward.frontier() <= backward.frontier();
+            Side side = fwd ? forward : backward;
+            Side other = fwd ? backward : forward;
+            int from = side.levelStart(side.depth), to = side.table.size();
+            for (int i = from; i < to; i++) {
+                long[] keys = side.table.keys();
+                cursor.load(keys, i * words);
+                side.expanded++;
+                int n = cursor.moves(buf);
+                for (int k = 0; k < n; k++) {
+                    puzzle.apply(keys, i * words, buf[k], next, 0);
+                    puzzle.canonicalize(next, 0);
+                    if (other == null) {
+                        // 尚未播种：胜利状态即与后向第 0 层交汇，本层首个即为最优
+                        if (meet == null && puzzle.isGoal(next, 0)) meet = new Meet(true, i, buf[k], -1, side.depth + 1);
+                    } else {
+                        int hit = other.table.indexOf(next, 0);
+                        if (hit >= 0) {
+                            int total = side.depth + 1 + other.depthOf(hit);
+                            if (meet == null || total < meet.total) meet = new Meet(fwd, i, buf[k], hit, total);
+                        }
+                    }
+                    side.table.add(next, 0, i, buf[k]);
+                }
+            }
+            side.endLevel();
+            aborted = forward.table.size() + (backward == null ? 0 : backward.table.size()) > maxStates;
+        }
+
+        long backwardExpanded = backward == null ? 0 : backward.expanded;
+        long bytes = forward.table.bytes() + (backward == null ? 0 : backward.table.bytes());
+        Solution.Stats stats = new Solution.Stats(forward.expanded + backwardExpanded,
+                forward.table.size() + (backward == null ? 0 : backward.table.size()), bytes, System.nanoTime() - begin);
+        stats.extras().put("goalStates", goals);
+        stats.extras().put("forwardExpanded", forward.expanded);
+        stats.extras().put("backwardExpanded", backwardExpanded);
+        if (aborted && meet == null) stats.extras().put("aborted", 1);
+        if (puzzle.getSymmetry() == Puzzle.Symmetry.MIRROR) stats.extras().put("mirror", 1);
+        if (compareWithBfs) {
+            Solution.Stats base = new BfsSolver(maxStates).solve(board).stats();
+            stats.extras().put("bfsExpanded", base.expanded());
+            stats.extras().put("nodeReduction", Math.round(100.0 * base.expanded() / Math.max(1, stats.expanded())) / 100.0);
+            stats.extras().put("speedup", Math.round(100.0 * base.elapsedNanos() / Math.max(1, stats.elapsedNanos())) / 100.0);
+        }
+        if (meet == null) {
+            log.info("双向 BFS 无解：" + stats);
+            return new Solution(false, List.of(), stats);
+        }
+        List<Board.MoveEntry> moves = path(puzzle, forward, backward, meet, start, root);
+        log.info("双向 BFS 求得 " + moves.size() + " 步最优解：" + stats);
+        return new Solution(true, moves, stats);
+    }
+
+    /**
+     * 拼接前向路径与后向路径：前向部分沿父指针正向回放，后向部分对每一步取逆走法
+     */
+    private static List<Board.MoveEntry> path(Puzzle puzzle, Side forward, Side backward, Meet meet,
+                                              long[] start, long[] root) {
+        int words = puzzle.getWords();
+        // 交汇状态在前向表中的下标 f、在后向表中的下标 b，以及连接两者的那一步（若有）
+        int f, b;
+        long[] bridgeParent = null;
+        int bridgeMove = -1;
+        if (meet.parent < 0) {
+            f = 0;
+            b = meet.hit;
+        } else if (meet.hit < 0) {
+            // 后向尚未播种时前向直接走到胜利状态，连接步即为最后一步
+            f = meet.parent;
+            b = -1;
+            bridgeParent = Arrays.copyOfRange(forward.table.keys(), f * words, (f + 1) * words);
+            bridgeMove = meet.move;
+        } else if (meet.forward) {
+            f = meet.parent;
+            b = meet.hit;
+            bridgeParent = Arrays.copyOfRange(forward.table.keys(), f * words, (f + 1) * words);
+            bridgeMove = meet.move;
+        } else {
+            f = meet.hit;
+            b = meet.parent;
+            // 后向扩展时从 b 经 move 得到了与前向状态 f 相同的子状态，从 f 退回 b 即为连接步
+            long[] child = Arrays.copyOfRange(forward.table.keys(), f * words, (f + 1) * words);
+            bridgeParent = child;
+            bridgeMove = puzzle.reverse(backward.table.keys(), b * words, meet.move, child, 0);
+        }
+
+        int fDepth = 0;
+        for (int i = f; forward.table.parent(i) >= 0; i = forward.table.parent(i)) fDepth++;
+        int bDepth = 0;
+        for (int i = b; i >= 0 && backward.table.parent(i) >= 0; i = backward.table.parent(i)) bDepth++;
+        int total = fDepth + (bridgeParent != null ? 1 : 0) + bDepth;
+        long[] parents = new long[total * words];
+        int[] moves = new int[total];
+
+        for (int i = f, k = fDepth - 1; k >= 0; i = forward.table.parent(i), k--) {
+            System.arraycopy(forward.table.keys(), forward.table.parent(i) * words, parents, k * words, words);
+            moves[k] = forward.table.move(i);
+        }
+        int k = fDepth;
+        if (bridgeParent != null) {
+            System.arraycopy(bridgeParent, 0, parents, k * words, words);
+            moves[k++] = bridgeMove;
+        }
+        for (int i = b; i >= 0 && backward.table.parent(i) >= 0; i = backward.table.parent(i), k++) {
+            long[] keys = backward.table.keys();
+            int p = backward.table.parent(i);
+            System.arraycopy(keys, i * words, parents, k * words, words);
+            moves[k] = puzzle.reverse(keys, p * words, backward.table.move(i), keys, i * words);
+        }
+        return puzzle.realize(start, parents, moves);
+    }
+
+    /**
+     * 交汇记录
+     * @param forward 是否在前向扩展时发现
+     * @param parent  扩展侧的父状态下标，起点即为胜利状态时为 -1
+     * @param move    父状态上的走法
+     * @param hit     另一侧表中的状态下标；后向尚未播种、直接走到胜利状态时为 -1
+     * @param total   经过该交汇点的总步数
+     */
+    private record Meet(boolean forward, int parent, int move, int hit, int total) { }
+
+    /**
+     * 单侧搜索：去重表按层连续存放，levelStarts 记录每层起始下标
+     */
+    private static final class Side {
+        final StateTable table;
+        int[] levelStarts = new int[64];
+        int depth = -1;
+        long expanded;
+
+        Side(int words) {
+            this.table = new StateTable(words, 1 << 12);
+        }
+
+        /** 结束当前层：此前插入的状态构成第 depth + 1 层 */
+        void endLevel() {
+            depth++;
+            if (depth + 1 >= levelStarts.length) levelStarts = Arrays.copyOf(levelStarts, levelStarts.length * 2);
+            levelStarts[depth + 1] = table.size();
+        }
+
+        int levelStart(int d) {
+            return d == 0 ? 0 : levelStarts[d];
+        }
+
+        /** 当前前沿（最深一层）的状态数 */
+        int frontier() {
+            return table.size() - levelStart(depth);
+        }
+
+        /** 下标为 index 的状态所在层数 */
+        int depthOf(int index) {
+            int d = Arrays.binarySearch(levelStarts, 1, depth + 2, index + 1);
+            return (d >= 0 ? d : -d - 1) - 1;
+        }
+    }
+}
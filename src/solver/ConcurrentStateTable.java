@@ -0,0 +1,151 @@
+package solver;
+
+import model.StateCodec;
+
+import java.util.Arrays;
+
+/**
+ * 分段加锁的压缩状态去重表，供并行求解器在多个线程间共享。
+ * <p>按哈希高位把状态分到若干段，每段是一张独立的线性探测表并由自身的锁保护，
+ * 不同段上的插入互不阻塞。状态以 {@code (段内下标 << STRIPE_BITS) | 段号} 形式的 int 引用标识。</p>
+ * <p>每个状态额外记录 origin（{@code (父状态在上一层中的序号 << 16) | 走法}）：
+ * 同一层内被多个父状态发现时保留最小值，从而与单线程 BFS 的首次发现顺序一致。</p>
+ */
+final class ConcurrentStateTable {
+    private static final int STRIPE_BITS = 6;
+    private static final int STRIPES = 1 << STRIPE_BITS;
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private final int words;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    ConcurrentStateTable(int words) {
+        this.words = words;
+        for (int i = 0; i < STRIPES; i++) stripes[i] = new Stripe();
+    }
+
+    /**
+     * 若状态不存在则插入；若已在本层插入过，则把 origin 更新为较小者
+     * @return 新状态的引用；状态已存在时返回 -1
+     */
+    int add(long[] s, int off, long origin) {
+        long h = StateCodec.hash(s, off, words);
+        int id = (int) (h >>> (64 - STRIPE_BITS));
+        Stripe st = stripes[id];
+        synchronized (st) {
+            int local = st.probe(s, off, (int) h);
+            if (local >= 0) {
+                if (local >= st.levelStart && origin < st.origins[local]) st.origins[local] = origin;
+                return -1;
+            }
+            return (st.insert(s, off, (int) h, origin) << STRIPE_BITS) | id;
+        }
+    }
+
+    /**
+     * 查找状态引用，不存在时返回 -1（仅在没有并发插入时调用）
+     */
+    int indexOf(long[] s, int off) {
+        long h = StateCodec.hash(s, off, words);
+        int id = (int) (h >>> (64 - STRIPE_BITS));
+        int local = stripes[id].probe(s, off, (int) h);
+        return local < 0 ? -1 : (local << STRIPE_BITS) | id;
+    }
+
+    /**
+     * 开始新的一层：此后插入的状态才允许更新 origin
+     */
+    void mark() {
+        for (Stripe st : stripes) st.levelStart = st.size;
+    }
+
+    long origin(int ref) {
+        return stripes[ref & (STRIPES - 1)].origins[ref >>> STRIPE_BITS];
+    }
+
+    int parent(int ref) {
+        return stripes[ref & (STRIPES - 1)].parents[ref >>> STRIPE_BITS];
+    }
+
+    void setParent(int ref, int parent) {
+        stripes[ref & (STRIPES - 1)].parents[ref >>> STRIPE_BITS] = parent;
+    }
+
+    /**
+     * 把引用对应的状态复制到 dst[off, off + words)
+     */
+    void copyKey(int ref, long[] dst, int off) {
+        System.arraycopy(stripes[ref & (STRIPES - 1)].keys, (ref >>> STRIPE_BITS) * words, dst, off, words);
+    }
+
+    /** 已存放状态总数 */
+    long size() {
+        long n = 0;
+        for (Stripe st : stripes) n += st.size;
+        return n;
+    }
+
+    /** 当前占用的内存字节数（按数组容量估算） */
+    long bytes() {
+        long n = 0;
+        for (Stripe st : stripes) {
+            n += (long) st.keys.length * 8 + (long) st.origins.length * 8
+                    + (long) st.parents.length * 4 + (long) st.slots.length * 4;
+        }
+        return n;
+    }
+
+    /**
+     * 单个分段：与 StateTable 相同的线性探测结构
+     */
+    private final class Stripe {
+        long[] keys = new long[16 * words];
+        long[] origins = new long[16];
+        int[] parents = new int[16];
+        /** 哈希槽：段内下标 + 1，0 表示空槽 */
+        int[] slots = new int[32];
+        int size;
+        int levelStart;
+
+        int probe(long[] s, int off, int h) {
+            int mask = slots.length - 1;
+            int pos = h & mask;
+            while (true) {
+                int slot = slots[pos];
+                if (slot == 0) return -1;
+                if (StateCodec.equals(keys, (slot - 1) * words, s, off, words)) return slot - 1;
+                pos = (pos + 1) & mask;
+            }
+        }
+
+        int insert(long[] s, int off, int h, long origin) {
+            if (size + 1 > slots.length * LOAD_FACTOR) rehash();
+            if (size == parents.length) {
+                int cap = size * 2;
+                keys = Arrays.copyOf(keys, cap * words);
+                origins = Arrays.copyOf(origins, cap);
+                parents = Arrays.copyOf(parents, cap);
+            }
+            int mask = slots.length - 1;
+            int pos = h & mask;
+            while (slots[pos] != 0) pos = (pos + 1) & mask;
+            int local = size++;
+            System.arraycopy(s, off, keys, local * words, words);
+            origins[local] = origin;
+            parents[local] = -1;
+            slots[pos] = local + 1;
+            return local;
+        }
+
+        void rehash() {
+            int[] next = new int[slots.length * 2];
+            int mask = next.length - 1;
+            for (int i = 0; i < size; i++) {
+                int pos = (int) StateCodec.hash(keys, i * words, words) & mask;
+                while (next[pos] != 0) pos = (pos + 1) & mask;
+                next[pos] = i + 1;
+            }
+            slots = next;
+        }
+    }
+}
@@ -0,0 +1,316 @@
+package solver;
+
+import model.Board;
+import model.GameMap;
+import model.StateCodec;
+import util.Log;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * 按地图离线生成的完整距离表：枚举地图初始布局可达的全部规范状态，
+ * 再从其中所有胜利状态出发逆向 BFS，得到每个状态到胜利的精确步数。
+ * <p>表以地图 MD5 命名保存在 dist 目录下，运行时只读内存映射，
+ * 查询剩余步数与最优下一步只需常数次哈希探测，不再搜索。</p>
+ * <p>文件格式（大端序）：</p>
+ * <ul>
+ *     <li>头部 6 个 int：魔数、版本、归并方式序号、每状态 long 数、状态数、槽数（2 的幂）；</li>
+ *     <li>槽数 × 每状态 long 数 个 long：开放寻址（线性探测）哈希表的键；</li>
+ *     <li>槽数个字节：对应槽的距离，{@code 0xFF} 表示空槽，{@code 0xFE} 表示该状态无解。</li>
+ * </ul>
+ * <p>实例只读且不持有可变状态，可在多个线程中同时查询。</p>
+ */
+public final class DistanceTable {
+    /** 距离表目录 */
+    public static final String DIR = "dist";
+    /** 查询结果：状态可达但无法到达胜利 */
+    public static final int NO_SOLUTION = Integer.MAX_VALUE;
+    /** 单字节可存储的最大距离 */
+    public static final int MAX_DISTANCE = 0xFD;
+
+    private static final String EXT = ".dist";
+    private static final int MAGIC = 0x48524454;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 6 * Integer.BYTES;
+    private static final int EMPTY = 0xFF;
+    private static final int DEAD = 0xFE;
+    private static final Log log = Log.getInstance();
+
+    private final Puzzle puzzle;
+    private final int words;
+    private final int states;
+    private final int mask;
+    private final LongBuffer keys;
+    private final ByteBuffer dist;
+
+    private DistanceTable(Puzzle puzzle, int states, int slots, LongBuffer keys, ByteBuffer dist) {
+        this.puzzle = puzzle;
+        this.words = puzzle.getWords();
+        this.states = states;
+        this.mask = slots - 1;
+        this.keys = keys;
+        this.dist = dist;
+    }
+
+    /**
+     * 地图对应的距离表文件路径
+     */
+    public static Path pathFor(GameMap map) throws IOException {
+        String md5 = map.getMd5();
+        if (md5 == null) throw new IOException("无法计算地图 MD5：" + map.getName());
+        return Paths.get(DIR, md5 + EXT);
+    }
+
+    /**
+     * 内存映射已生成的距离表
+     * @param map 地图模型
+     * @return 距离表；文件不存在时返回 null
+     * @throws IOException 文件读取失败或格式不符
+     */
+    public static DistanceTable open(GameMap map) throws IOException {
+        Path file = pathFor(map);
+        if (!Files.exists(file)) return null;
+        MappedByteBuffer buf;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (ch.size() > Integer.MAX_VALUE) throw new IOException("距离表文件过大：" + file);
+            buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+        }
+        if (buf.capacity() < HEADER_BYTES || buf.getInt(0) != MAGIC || buf.getInt(4) != VERSION) {
+            throw new IOException("距离表格式不正确：" + file);
+        }
+        int symmetry = buf.getInt(8), words = buf.getInt(12), states = buf.getInt(16), slots = buf.getInt(20);
+        if (symmetry < 0 || symmetry >= Puzzle.Symmetry.values().length) throw new IOException("距离表格式不正确：" + file);
+        Puzzle puzzle = new Puzzle(freshBoard(map), Puzzle.Symmetry.values()[symmetry]);
+        long expected = HEADER_BYTES + (long) slots * words * Long.BYTES + slots;
+        if (puzzle.getWords() != words || Integer.bitCount(slots) != 1 || buf.capacity() != expected) {
+            throw new IOException("距离表与地图不一致：" + file);
+        }
+        LongBuffer keys = buf.slice(HEADER_BYTES, slots * words * Long.BYTES).asLongBuffer();
+        ByteBuffer dist = buf.slice(HEADER_BYTES + slots * words * Long.BYTES, slots);
+        return new DistanceTable(puzzle, states, slots, keys, dist);
+    }
+
+    /**
+     * 按地图文件重新读取初始布局建立棋盘：本类通常在提示线程上调用，
+     * 而 {@code new Board(map)} 会与游戏中的棋盘共用同一组方块对象，EDT 上的移动会改变它们
+     */
+    private static Board freshBoard(GameMap map) throws IOException {
+        GameMap fresh = new GameMap(map.getName());
+        if (!fresh.isValid()) throw new IOException("地图文件无法读取：" + map.getName());
+        return new Board(fresh);
+    }
+
+    /**
+     * 打开地图的距离表，不存在时先离线生成
+     */
+    public static DistanceTable openOrBuild(GameMap map) throws IOException {
+        DistanceTable table = open(map);
+        if (table != null) return table;
+        build(map, BfsSolver.DEFAULT_MAX_STATES);
+        return open(map);
+    }
+
+    /**
+     * 离线生成地图的距离表并写入文件（先写临时文件再替换，避免留下半个文件）
+     * @param map       地图模型
+     * @param maxStates 最多枚举的状态数
+     * @return 写入的文件路径
+     * @throws IOException           写入失败
+     * @throws IllegalStateException 状态数超过上限或距离超出单字节范围
+     */
+    public static Path build(GameMap map, int maxStates) throws IOException {
+        long begin = System.nanoTime();
+        Path file = pathFor(map);
+        Board board = freshBoard(map);
+        Puzzle puzzle = new Puzzle(board);
+        int words = puzzle.getWords();
+
+        // 正向枚举初始布局的整个连通分量，再逆向求各状态到胜利的距离
+        StateTable table = reachable(puzzle, puzzle.encode(board), maxStates);
+        int size = table.size();
+        int[] distance = goalDistances(puzzle, table);
+        for (int d : distance) {
+            if (d > MAX_DISTANCE) throw new IllegalStateException("距离超过 " + MAX_DISTANCE + " 步");
+        }
+
+        // 按哈希重新摆放为开放寻址表
+        int slots = Integer.highestOneBit(Math.max(16, size * 2 - 1)) << 1;
+        if ((long) slots * words * Long.BYTES + slots + HEADER_BYTES > Integer.MAX_VALUE) {
+            throw new IllegalStateException("距离表超过单个映射的大小上限");
+        }
+        long[] slotKeys = new long[slots * words];
+        byte[] slotDist = new byte[slots];
+        Arrays.fill(slotDist, (byte) EMPTY);
+        for (int i = 0; i < size; i++) {
+            int pos = (int) StateCodec.hash(table.keys(), i * words, words) & (slots - 1);
+            while ((slotDist[pos] & 0xFF) != EMPTY) pos = (pos + 1) & (slots - 1);
+            System.arraycopy(table.keys(), i * words, slotKeys, pos * words, words);
+            slotDist[pos] = (byte) (distance[i] < 0 ? DEAD : distance[i]);
+        }
+
+        Files.createDirectories(file.getParent());
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(puzzle.getSymmetry().ordinal());
+            out.writeInt(words);
+            out.writeInt(size);
+            out.writeInt(slots);
+            for (long v : slotKeys) out.writeLong(v);
+            out.write(slotDist);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+        log.info(String.format("距离表 %s：%d 个状态，初始布局距离 %d，耗时 %.1f ms",
+                file, size, distance[0], (System.nanoTime() - begin) / 1e6));
+        return file;
+    }
+
+    /**
+     * 正向枚举起始状态所在的整个连通分量（规范状态，按 BFS 顺序存放，第 0 个为起点）
+     * @throws IllegalStateException 状态数超过上限
+     */
+    static StateTable reachable(Puzzle puzzle, long[] start, int maxStates) {
+        int words = puzzle.getWords();
+        Puzzle.Cursor cursor = puzzle.cursor();
+        int[] buf = new int[puzzle.getBlockCount() * 4];
+        long[] next = new long[words];
+        StateTable table = new StateTable(words, 1 << 12);
+        long[] root = start.clone();
+        puzzle.canonicalize(root, 0);
+        table.add(root, 0, -1, -1);
+        for (int head = 0; head < table.size(); head++) {
+            if (table.size() > maxStates) throw new IllegalStateException("可达状态数超过上限 " + maxStates);
+            cursor.load(table.keys(), head * words);
+            int n = cursor.moves(buf);
+            for (int k = 0; k < n; k++) {
+                puzzle.apply(table.keys(), head * words, buf[k], next, 0);
+                puzzle.canonicalize(next, 0);
+                table.add(next, 0, head, buf[k]);
+            }
+        }
+        return table;
+    }
+
+    /**
+     * 逆向分析：滑块走法可逆，从连通分量中全部胜利状态出发的多源 BFS 即得各状态到胜利的最少步数
+     * @param table {@link #reachable} 枚举出的完整连通分量
+     * @return 按状态下标排列的距离，无解状态为 -1
+     */
+    static int[] goalDistances(Puzzle puzzle, StateTable table) {
+        int words = puzzle.getWords();
+        Puzzle.Cursor cursor = puzzle.cursor();
+        int[] buf = new int[puzzle.getBlockCount() * 4];
+        long[] next = new long[words];
+        int size = table.size();
+        int[] distance = new int[size];
+        int[] queue = new int[size];
+        int tail = 0;
+        for (int i = 0; i < size; i++) {
+            distance[i] = puzzle.isGoal(table.keys(), i * words) ? 0 : -1;
+            if (distance[i] == 0) queue[tail++] = i;
+        }
+        for (int head = 0; head < tail; head++) {
+            int i = queue[head];
+            cursor.load(table.keys(), i * words);
+            int n = cursor.moves(buf);
+            for (int k = 0; k < n; k++) {
+                puzzle.apply(table.keys(), i * words, buf[k], next, 0);
+                puzzle.canonicalize(next, 0);
+                int j = table.indexOf(next, 0);
+                if (distance[j] >= 0) continue;
+                distance[j] = distance[i] + 1;
+                queue[tail++] = j;
+            }
+        }
+        return distance;
+    }
+
+    /** 表中的状态数 */
+    public int size() {
+        return states;
+    }
+
+    /**
+     * 查询棋盘当前状态到胜利的最少步数
+     * @return 步数；状态无解时为 {@link #NO_SOLUTION}；不在表中（与生成时的初始布局不连通）时为 -1
+     */
+    public int distance(Board board) {
+        long[] s = puzzle.encode(board);
+        puzzle.canonicalize(s, 0);
+        return lookup(s);
+    }
+
+    /**
+     * 查询棋盘当前状态下的一个最优走法（不修改棋盘）
+     * @return 最优走法；已胜利、无解或状态不在表中时返回 null
+     */
+    public Board.MoveEntry bestMove(Board board) {
+        long[] real = puzzle.encode(board);
+        long[] next = new long[words];
+        System.arraycopy(real, 0, next, 0, words);
+        puzzle.canonicalize(next, 0);
+        int d = lookup(next);
+        if (d <= 0 || d == NO_SOLUTION) return null;
+        Puzzle.Cursor cursor = puzzle.cursor();
+        cursor.load(real, 0);
+        int[] buf = new int[puzzle.getBlockCount() * 4];
+        int n = cursor.moves(buf);
+        // 在真实状态上生成走法，无需再把规范走法映射回方块 ID
+        for (int k = 0; k < n; k++) {
+            puzzle.apply(real, 0, buf[k], next, 0);
+            puzzle.canonicalize(next, 0);
+            if (lookup(next) == d - 1) return puzzle.toMoveEntry(buf[k]);
+        }
+        return null;
+    }
+
+    // 线性探测查找规范状态的距离
+    private int lookup(long[] s) {
+        int pos = (int) StateCodec.hash(s, 0, words) & mask;
+        while (true) {
+            int d = dist.get(pos) & 0xFF;
+            if (d == EMPTY) return -1;
+            boolean same = true;
+            for (int w = 0; w < words && same; w++) same = keys.get(pos * words + w) == s[w];
+            if (same) return d == DEAD ? NO_SOLUTION : d;
+            pos = (pos + 1) & mask;
+        }
+    }
+
+    /**
+     * 离线生成距离表：参数为地图文件路径，缺省时处理 maps 目录下的全部地图
+     */
+    public static void main(String[] args) throws IOException {
+        File[] files;
+        if (args.length > 0) {
+            files = new File[args.length];
+            for (int i = 0; i < args.length; i++) files[i] = new File(args[i]);
+        } else {
+            files = new File("maps").listFiles((dir, name) -> name.endsWith(".txt"));
+            if (files == null) files = new File[0];
+        }
+        for (File f : files) {
+            GameMap map = new GameMap(f.getPath());
+            if (!map.isValid()) continue;
+            try {
+                build(map, BfsSolver.DEFAULT_MAX_STATES);
+            } catch (IllegalStateException e) {
+                log.warn("跳过地图 " + f.getName() + "：" + e.getMessage());
+            }
+        }
+    }
+}
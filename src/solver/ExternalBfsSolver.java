@@ -0,0 +1,461 @@
+package solver;
+
+import model.Board;
+import model.StateCodec;
+import util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.stream.Stream;
+
+/**
+ * 外存广度优先求解器：内存中只保留固定容量的后继缓冲区，状态全部以有序定长记录的形式存放在磁盘上。
+ * <p>逐层扩展：读入第 d 层文件，把规范化后的后继写入缓冲区，满了就排序去重后作为一个有序段溢写到磁盘；
+ * 本层扩展完后对所有段做多路归并，同时顺序扫描第 d 层与第 d - 1 层文件剔除重复（延迟重复检测）。
+ * 滑块走法可逆，第 d 层状态的后继只可能位于 d - 1、d、d + 1 层，因此只需对比这两层。
+ * 段数超过 {@link #MERGE_FAN_IN} 时先分组归并成中间段写回磁盘，逐趟减少段数，同时打开的文件数因此有上限，
+ * 缓冲区很小、段数很多时也不会耗尽文件句柄。</p>
+ * <p>各层文件保留到求解结束：找到胜利状态后逐层向前，在上一层文件中二分查找一个邻居即可回溯出路径。</p>
+ */
+public class ExternalBfsSolver implements Solver {
+    /** 默认缓冲区可容纳的状态数 */
+    public static final int DEFAULT_BUFFER_STATES = 1 << 20;
+    /** 默认最多生成的状态总数，超出后放弃搜索 */
+    public static final long DEFAULT_MAX_STATES = 1L << 32;
+
+    /** 单趟归并同时打开的有序段数上限 */
+    public static final int MERGE_FAN_IN = 64;
+
+    private static final int IO_BUFFER = 1 << 16;
+
+    private final Log log = Log.getInstance();
+    private final int bufferStates;
+    private final long maxStates;
+    private final Path tempRoot;
+
+    public ExternalBfsSolver() {
+        this(DEFAULT_BUFFER_STATES, DEFAULT_MAX_STATES, null);
+    }
+
+    /**
+     * @param bufferStates 内存缓冲区可容纳的状态数，决定堆内存占用
+     * @param maxStates    最多生成的状态总数，超出后视为无解并在统计中标记 aborted
+     * @param tempRoot     溢写文件所在目录，为 null 时使用系统临时目录
+     */
+    public ExternalBfsSolver(int bufferStates, long maxStates, Path tempRoot) {
+        this.bufferStates = Math.max(16, bufferStates);
+        this.maxStates = maxStates;
+        this.tempRoot = tempRoot;
+    }
+
+    @Override
+    public Solution solve(Board board) {
+        long begin = System.nanoTime();
+        Puzzle puzzle = new Puzzle(board);
+        long[] start = puzzle.encode(board);
+        Path dir = null;
+        try {
+            dir = tempRoot == null ? Files.createTempDirectory("hrd-bfs")
+                    : Files.createTempDirectory(Files.createDirectories(tempRoot), "hrd-bfs");
+            Search search = new Search(puzzle, dir);
+            List<Board.MoveEntry> moves = search.run(start);
+
+            Solution.Stats stats = new Solution.Stats(search.expanded, search.stored,
+                    (long) bufferStates * puzzle.getWords() * 8 + search.mergeBytes, System.nanoTime() - begin);
+            stats.extras().put("layers", search.layers.size());
+            stats.extras().put("spilledBytes", search.spilled);
+            stats.extras().put("mergeStatesPerSec",
+                    search.mergeNanos > 0 ? (long) (search.merged * 1e9 / search.mergeNanos) : 0);
+            if (search.aborted) stats.extras().put("aborted", 1);
+            if (puzzle.getSymmetry() == Puzzle.Symmetry.MIRROR) stats.extras().put("mirror", 1);
+            if (moves == null) {
+                log.info("外存 BFS 无解：" + stats);
+                return new Solution(false, List.of(), stats);
+            }
+            log.info("外存 BFS 求得 " + moves.size() + " 步最优解：" + stats);
+            return new Solution(true, moves, stats);
+        } catch (IOException e) {
+            throw new UncheckedIOException("外存 BFS 读写失败", e);
+        } finally {
+            if (dir != null) delete(dir);
+        }
+    }
+
+    // 删除溢写目录及其中全部文件
+    private void delete(Path dir) {
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path p : (Iterable<Path>) files::iterator) Files.deleteIfExists(p);
+            Files.deleteIfExists(dir);
+        } catch (IOException e) {
+            log.warn("清理外存 BFS 临时目录失败：" + dir);
+        }
+    }
+
+    /**
+     * 单次求解的状态：层文件、溢写统计与工作缓冲区
+     */
+    private final class Search {
+        private final Puzzle puzzle;
+        private final Path dir;
+        private final int words;
+        private final int recordBytes;
+        /** 第 d 个元素为第 d 层的文件，记录按无符号字典序严格递增 */
+        private final List<Path> layers = new ArrayList<>();
+        private final List<Long> counts = new ArrayList<>();
+        private final long[] buffer;
+        private final long[] pivot;
+        private int buffered;
+        private final List<Path> runs = new ArrayList<>();
+        private long expanded;
+        private long stored;
+        private long spilled;
+        private long merged;
+        private long mergeNanos;
+        private long mergeBytes;
+        private boolean aborted;
+        private int fileSeq;
+
+        Search(Puzzle puzzle, Path dir) {
+            this.puzzle = puzzle;
+            this.dir = dir;
+            this.words = puzzle.getWords();
+            this.recordBytes = words * 8;
+            this.buffer = new long[bufferStates * words];
+            this.pivot = new long[words];
+        }
+
+        /**
+         * @return 真实方块 ID 的移动序列；无解或放弃时为 null
+         */
+        List<Board.MoveEntry> run(long[] start) throws IOException {
+            long[] root = start.clone();
+            puzzle.canonicalize(root, 0);
+            Path first = newFile("layer");
+            try (DataOutputStream out = output(first)) {
+                write(out, root, 0);
+            }
+            layers.add(first);
+            counts.add(1L);
+            stored = 1;
+            if (puzzle.isGoal(root, 0)) return List.of();
+
+            Puzzle.Cursor cursor = puzzle.cursor();
+            int[] moves = new int[puzzle.getBlockCount() * 4];
+            long[] state = new long[words];
+            long[] next = new long[words];
+            while (true) {
+                if (stored > maxStates || Thread.currentThread().isInterrupted()) {
+                    aborted = true;
+                    return null;
+                }
+                int d = layers.size() - 1;
+                try (RecordReader in = new RecordReader(layers.get(d), counts.get(d))) {
+                    while (in.next(state)) {
+                        cursor.load(state, 0);
+                        expanded++;
+                        int n = cursor.moves(moves);
+                        for (int k = 0; k < n; k++) {
+                            puzzle.apply(state, 0, moves[k], next, 0);
+                            puzzle.canonicalize(next, 0);
+                            if (buffered == bufferStates) spill();
+                            System.arraycopy(next, 0, buffer, buffered++ * words, words);
+                        }
+                    }
+                }
+                if (buffered > 0) spill();
+                if (runs.isEmpty()) return null;
+                long[] goal = mergeLayer();
+                if (goal != null) return backtrack(start, goal);
+                if (counts.get(counts.size() - 1) == 0) return null;
+            }
+        }
+
+        // 缓冲区排序去重后作为一个有序段写出
+        private void spill() throws IOException {
+            sort(buffer, 0, buffered - 1);
+            Path run = newFile("run");
+            try (DataOutputStream out = output(run)) {
+                for (int i = 0; i < buffered; i++) {
+                    if (i > 0 && StateCodec.equals(buffer, i * words, buffer, (i - 1) * words, words)) continue;
+                    write(out, buffer, i * words);
+                }
+            }
+            spilled += Files.size(run);
+            runs.add(run);
+            buffered = 0;
+        }
+
+        /**
+         * 归并本层所有有序段，剔除段间重复与前两层中已有的状态，写出新一层
+         * @return 新层中的胜利状态；不存在时返回 null
+         */
+        private long[] mergeLayer() throws IOException {
+            long begin = System.nanoTime();
+            // 段数过多时先按 MERGE_FAN_IN 个一组归并成中间段，新段排到队尾，直到剩余段数不超过上限
+            while (runs.size() > MERGE_FAN_IN) {
+                List<Path> group = new ArrayList<>(runs.subList(0, MERGE_FAN_IN));
+                runs.subList(0, MERGE_FAN_IN).clear();
+                runs.add(mergeRuns(group));
+            }
+            int d = layers.size() - 1;
+            Path out = newFile("layer");
+            long count = 0;
+            long[] goal = null;
+            List<RecordReader> readers = new ArrayList<>();
+            PriorityQueue<RecordReader> heap = heap();
+            RecordReader prev = null, cur = null;
+            try (DataOutputStream o = output(out)) {
+                open(runs, readers, heap);
+                cur = new RecordReader(layers.get(d), counts.get(d));
+                cur.advance();
+                if (d > 0) {
+                    prev = new RecordReader(layers.get(d - 1), counts.get(d - 1));
+                    prev.advance();
+                }
+                mergeBytes = Math.max(mergeBytes, (long) (readers.size() + 3) * (IO_BUFFER + recordBytes));
+                long[] last = new long[words];
+                boolean hasLast = false;
+                while (!heap.isEmpty()) {
+                    RecordReader r = heap.poll();
+                    merged++;
+                    long[] s = r.current;
+                    boolean dup = hasLast && StateCodec.equals(s, 0, last, 0, words);
+                    if (!dup) {
+                        System.arraycopy(s, 0, last, 0, words);
+                        hasLast = true;
+                        dup = cur.skipTo(s) || (prev != null && prev.skipTo(s));
+                        if (!dup) {
+                            write(o, s, 0);
+                            count++;
+                            if (puzzle.isGoal(s, 0)) {
+                                goal = s.clone();
+                                break;
+                            }
+                        }
+                    }
+                    if (r.advance()) heap.add(r);
+                }
+            } finally {
+                for (RecordReader r : readers) r.close();
+                if (cur != null) cur.close();
+                if (prev != null) prev.close();
+            }
+            for (Path run : runs) Files.deleteIfExists(run);
+            runs.clear();
+            layers.add(out);
+            counts.add(count);
+            stored += count;
+            spilled += Files.size(out);
+            mergeNanos += System.nanoTime() - begin;
+            return goal;
+        }
+
+        /**
+         * 把一组有序段归并去重为一个中间段，归并后删除原段
+         * @return 中间段文件
+         */
+        private Path mergeRuns(List<Path> group) throws IOException {
+            Path out = newFile("run");
+            List<RecordReader> readers = new ArrayList<>();
+            PriorityQueue<RecordReader> heap = heap();
+            try (DataOutputStream o = output(out)) {
+                open(group, readers, heap);
+                mergeBytes = Math.max(mergeBytes, (long) (readers.size() + 1) * (IO_BUFFER + recordBytes));
+                long[] last = new long[words];
+                boolean hasLast = false;
+                while (!heap.isEmpty()) {
+                    RecordReader r = heap.poll();
+                    merged++;
+                    if (!hasLast || !StateCodec.equals(r.current, 0, last, 0, words)) {
+                        System.arraycopy(r.current, 0, last, 0, words);
+                        hasLast = true;
+                        write(o, last, 0);
+                    }
+                    if (r.advance()) heap.add(r);
+                }
+            } finally {
+                for (RecordReader r : readers) r.close();
+            }
+            for (Path run : group) Files.deleteIfExists(run);
+            spilled += Files.size(out);
+            return out;
+        }
+
+        // 按当前记录排序的归并堆
+        private PriorityQueue<RecordReader> heap() {
+            return new PriorityQueue<>((a, b) -> StateCodec.compare(a.current, 0, b.current, 0, words));
+        }
+
+        // 打开各有序段并把非空段放入归并堆；已打开的读取器记入 readers，由调用方关闭
+        private void open(List<Path> files, List<RecordReader> readers, PriorityQueue<RecordReader> heap)
+                throws IOException {
+            for (Path run : files) {
+                RecordReader r = new RecordReader(run, Files.size(run) / recordBytes);
+                readers.add(r);
+                if (r.advance()) heap.add(r);
+            }
+        }
+
+        /**
+         * 从胜利状态逐层向前：在上一层中找到当前状态的一个邻居作为父状态
+         */
+        private List<Board.MoveEntry> backtrack(long[] start, long[] goal) throws IOException {
+            int depth = layers.size() - 1;
+            long[] parents = new long[depth * words];
+            int[] moves = new int[depth];
+            Puzzle.Cursor cursor = puzzle.cursor();
+            int[] buf = new int[puzzle.getBlockCount() * 4];
+            long[] child = goal.clone();
+            long[] next = new long[words];
+            for (int k = depth - 1; k >= 0; k--) {
+                cursor.load(child, 0);
+                int n = cursor.moves(buf);
+                boolean found = false;
+                for (int i = 0; i < n && !found; i++) {
+                    puzzle.apply(child, 0, buf[i], next, 0);
+                    puzzle.canonicalize(next, 0);
+                    if (!contains(layers.get(k), counts.get(k), next)) continue;
+                    System.arraycopy(next, 0, parents, k * words, words);
+                    moves[k] = puzzle.reverse(child, 0, buf[i], next, 0);
+                    found = true;
+                }
+                if (!found) throw new IllegalStateException("第 " + k + " 层中找不到父状态");
+                System.arraycopy(next, 0, child, 0, words);
+            }
+            return puzzle.realize(start, parents, moves);
+        }
+
+        // 在有序层文件中二分查找状态
+        private boolean contains(Path file, long count, long[] s) throws IOException {
+            ByteBuffer bb = ByteBuffer.allocate(recordBytes);
+            long[] probe = new long[words];
+            try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+                long lo = 0, hi = count - 1;
+                while (lo <= hi) {
+                    long mid = (lo + hi) >>> 1;
+                    bb.clear();
+                    while (bb.hasRemaining()) {
+                        if (ch.read(bb, mid * recordBytes + bb.position()) < 0) break;
+                    }
+                    bb.flip();
+                    for (int w = 0; w < words; w++) probe[w] = bb.getLong();
+                    int c = StateCodec.compare(probe, 0, s, 0, words);
+                    if (c == 0) return true;
+                    if (c < 0) lo = mid + 1;
+                    else hi = mid - 1;
+                }
+            }
+            return false;
+        }
+
+        private Path newFile(String prefix) {
+            return dir.resolve(prefix + "-" + (fileSeq++) + ".bin");
+        }
+
+        private DataOutputStream output(Path file) throws IOException {
+            return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), IO_BUFFER));
+        }
+
+        private void write(DataOutputStream out, long[] s, int off) throws IOException {
+            for (int w = 0; w < words; w++) out.writeLong(s[off + w]);
+        }
+
+        // 对缓冲区中 [lo, hi] 范围的定长记录做快速排序，小区间改用插入排序
+        private void sort(long[] a, int lo, int hi) {
+            while (hi - lo > 16) {
+                int mid = (lo + hi) >>> 1;
+                System.arraycopy(a, mid * words, pivot, 0, words);
+                int i = lo, j = hi;
+                while (i <= j) {
+                    while (StateCodec.compare(a, i * words, pivot, 0, words) < 0) i++;
+                    while (StateCodec.compare(a, j * words, pivot, 0, words) > 0) j--;
+                    if (i <= j) swap(a, i++, j--);
+                }
+                // 先递归较短的一半，控制栈深度
+                if (j - lo < hi - i) {
+                    sort(a, lo, j);
+                    lo = i;
+                } else {
+                    sort(a, i, hi);
+                    hi = j;
+                }
+            }
+            for (int i = lo + 1; i <= hi; i++) {
+                for (int j = i; j > lo && StateCodec.compare(a, (j - 1) * words, a, j * words, words) > 0; j--) {
+                    swap(a, j - 1, j);
+                }
+            }
+        }
+
+        private void swap(long[] a, int i, int j) {
+            for (int w = 0; w < words; w++) {
+                long t = a[i * words + w];
+                a[i * words + w] = a[j * words + w];
+                a[j * words + w] = t;
+            }
+        }
+
+        /**
+         * 顺序读取有序记录文件
+         */
+        private final class RecordReader implements Closeable {
+            private final DataInputStream in;
+            private long remaining;
+            /** 当前记录，advance 返回 true 后有效 */
+            final long[] current = new long[words];
+            private boolean valid;
+
+            RecordReader(Path file, long count) throws IOException {
+                this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), IO_BUFFER));
+                this.remaining = count;
+            }
+
+            /** 读入下一条记录 */
+            boolean advance() throws IOException {
+                if (remaining == 0) return valid = false;
+                try {
+                    for (int w = 0; w < words; w++) current[w] = in.readLong();
+                } catch (EOFException e) {
+                    return valid = false;
+                }
+                remaining--;
+                return valid = true;
+            }
+
+            /** 读入下一条记录并复制到 dst */
+            boolean next(long[] dst) throws IOException {
+                if (!advance()) return false;
+                System.arraycopy(current, 0, dst, 0, words);
+                return true;
+            }
+
+            /**
+             * 向前跳过小于 s 的记录（s 按升序给出）
+             * @return 文件中是否存在 s
+             */
+            boolean skipTo(long[] s) throws IOException {
+                while (valid && StateCodec.compare(current, 0, s, 0, words) < 0) advance();
+                return valid && StateCodec.equals(current, 0, s, 0, words);
+            }
+
+            @Override
+            public void close() throws IOException {
+                in.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package solver;
+
+import java.util.function.Function;
+
+/**
+ * 可采纳启发函数：对压缩状态给出到达胜利状态所需步数的下界。
+ * 实现可持有内部缓冲区，除特别说明外非线程安全，每次求解各自创建。
+ */
+public interface Heuristic {
+    /** 表示不可达的估计值，足够大且相加不会溢出 */
+    int INFINITE = 1 << 20;
+
+    /**
+     * 估计从状态出发到达胜利状态的最少步数（不得高估）
+     */
+    int estimate(long[] s, int off);
+
+    /** 查表次数，用于统计命中率；不查表的实现返回 0 */
+    default long lookups() { return 0; }
+
+    /** 查表命中次数 */
+    default long hits() { return 0; }
+
+    /**
+     * LARGE 方块到胜利区的曼哈顿距离
+     */
+    static Function<Puzzle, Heuristic> largeDistance() {
+        return LargeDistanceHeuristic::new;
+    }
+
+    /**
+     * 加性模式数据库，并与曼哈顿距离取最大值
+     * @param budget 每个模式组最多存储的抽象状态数
+     */
+    static Function<Puzzle, Heuristic> patternDatabase(int budget) {
+        return puzzle -> PatternDatabase.build(puzzle, budget);
+    }
+}
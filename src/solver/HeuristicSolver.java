@@ -0,0 +1,390 @@
+package solver;
+
+import model.Board;
+import model.StateCodec;
+import util.Log;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+
+/**
+ * 启发式求解器，支持两种模式：
+ * <ul>
+ *     <li>A*：按 f = g + h 从小到大展开，保存全部已生成状态，展开结点最少；</li>
+ *     <li>IDA*：以 f 为界逐轮加深的深度优先搜索，只使用固定大小的置换表剪除重复状态，
+ *     内存占用与地图规模无关，适合状态空间装不进内存的大棋盘。</li>
+ * </ul>
+ * 启发函数可插拔，只要可采纳即可保证解为最优。两种模式都受展开结点数上限与停止请求约束，
+ * 放弃时在统计中标记 aborted。
+ * <p>统计中的 startEstimate 为起点的估计值，meanEstimate 为全部估计的平均值，可与解长对照评估启发的强度。
+ * 实测横刀立马（PIECES 归并）：模式数据库对全部可达状态的平均估计约 10 步，真实平均距离约 72 步；
+ * A* 展开 23106 个结点，BFS 为 23954 个，只少约 3.5%，加上约 0.2 秒建库反而更慢；
+ * IDA* 需约 1300 万次展开（数十秒）。经典地图应使用 BFS，启发式搜索只在状态空间装不进内存时才有意义。</p>
+ */
+public class HeuristicSolver implements Solver {
+    /** 搜索模式 */
+    public enum Mode { A_STAR, IDA_STAR }
+
+    /** IDA* 置换表默认槽数 */
+    public static final int DEFAULT_TABLE_SLOTS = 1 << 20;
+    /** 默认最多展开的结点数，超出后放弃搜索（IDA* 在横刀立马上约需 1300 万次） */
+    public static final long DEFAULT_MAX_NODES = 1L << 24;
+
+    private final Log log = Log.getInstance();
+    private final Mode mode;
+    private final Function<Puzzle, Heuristic> heuristic;
+    private final int limit;
+    private final long maxNodes;
+    private final BooleanSupplier stop;
+
+    /**
+     * 使用模式数据库启发的默认配置
+     */
+    public HeuristicSolver(Mode mode) {
+        this(mode, Heuristic.patternDatabase(1 << 20),
+                mode == Mode.A_STAR ? BfsSolver.DEFAULT_MAX_STATES : DEFAULT_TABLE_SLOTS);
+    }
+
+    /**
+     * @param mode      搜索模式
+     * @param heuristic 针对每个地图创建启发函数的工厂
+     * @param limit     A* 模式下最多存储的状态数；IDA* 模式下置换表槽数（向上取整为 2 的幂）
+     */
+    public HeuristicSolver(Mode mode, Function<Puzzle, Heuristic> heuristic, int limit) {
+        this(mode, heuristic, limit, DEFAULT_MAX_NODES, () -> false);
+    }
+
+    /**
+     * @param mode      搜索模式
+     * @param heuristic 针对每个地图创建启发函数的工厂
+     * @param limit     A* 模式下最多存储的状态数；IDA* 模式下置换表槽数（向上取整为 2 的幂）
+     * @param maxNodes  最多展开的结点数（IDA* 各轮累计），超出后视为无解并在统计中标记 aborted
+     * @param stop      每展开一个结点查询一次，返回 true 时同样放弃并标记 aborted（用于协作式取消，不中断线程）
+     */
+    public HeuristicSolver(Mode mode, Function<Puzzle, Heuristic> heuristic, int limit,
+                           long maxNodes, BooleanSupplier stop) {
+        this.mode = mode;
+        this.heuristic = heuristic;
+        this.limit = limit;
+        this.maxNodes = maxNodes;
+        this.stop = stop;
+    }
+
+    @Override
+    public Solution solve(Board board) {
+        long begin = System.nanoTime();
+        Puzzle puzzle = new Puzzle(board);
+        Heuristic h = heuristic.apply(puzzle);
+        long prepared = System.nanoTime();
+        long[] start = puzzle.encode(board);
+        Search search = mode == Mode.A_STAR ? new AStar(puzzle, h, limit) : new IdaStar(puzzle, h, limit);
+        search.maxNodes = maxNodes;
+        search.stop = stop;
+        List<Board.MoveEntry> moves = search.run(start);
+
+        long elapsed = System.nanoTime() - begin;
+        long bytes = search.bytes() + (h instanceof PatternDatabase pdb ? pdb.bytes() : 0);
+        Solution.Stats stats = new Solution.Stats(search.expanded, search.stored(), bytes, elapsed);
+        double searchSeconds = Math.max(1e-9, (System.nanoTime() - prepared) / 1e9);
+        stats.extras().put("prepareMs", (prepared - begin) / 1_000_000);
+        stats.extras().put("nodesPerSec", Math.round(search.expanded / searchSeconds));
+        if (h.lookups() > 0) {
+            stats.extras().put("hitRate", Math.round(1000.0 * h.hits() / h.lookups()) / 10.0);
+        }
+        if (search.estimates > 0) {
+            stats.extras().put("startEstimate", search.startEstimate);
+            stats.extras().put("meanEstimate", Math.round(10.0 * search.estimateSum / search.estimates) / 10.0);
+        }
+        if (search.iterations > 0) stats.extras().put("iterations", search.iterations);
+        if (search.aborted) stats.extras().put("aborted", 1);
+        if (puzzle.getSymmetry() == Puzzle.Symmetry.MIRROR) stats.extras().put("mirror", 1);
+        if (moves == null) {
+            log.info(mode + " 无解：" + stats);
+            return new Solution(false, List.of(), stats);
+        }
+        log.info(mode + " 求得 " + moves.size() + " 步最优解：" + stats);
+        return new Solution(true, moves, stats);
+    }
+
+    /**
+     * 搜索过程的公共部分
+     */
+    private abstract static class Search {
+        final Puzzle puzzle;
+        final Heuristic h;
+        final int words;
+        long expanded;
+        int iterations;
+        boolean aborted;
+        long maxNodes;
+        BooleanSupplier stop;
+        int startEstimate;
+        long estimateSum;
+        long estimates;
+
+        Search(Puzzle puzzle, Heuristic h) {
+            this.puzzle = puzzle;
+            this.h = h;
+            this.words = puzzle.getWords();
+        }
+
+        // 查询启发值并累计统计（不可达的估计不计入平均值）
+        int estimate(long[] s, int off) {
+            int e = h.estimate(s, off);
+            if (e < Heuristic.INFINITE) {
+                estimateSum += e;
+                estimates++;
+            }
+            return e;
+        }
+
+        /**
+         * 展开结点前调用：超出展开上限、收到停止请求或所在线程被中断时标记 aborted
+         * @return 是否应放弃搜索
+         */
+        boolean halted() {
+            if (!aborted && (expanded >= maxNodes || stop.getAsBoolean() || Thread.currentThread().isInterrupted())) {
+                aborted = true;
+            }
+            return aborted;
+        }
+
+        /** 求解并返回真实方块 ID 的移动序列，无解时返回 null */
+        abstract List<Board.MoveEntry> run(long[] start);
+
+        abstract long stored();
+
+        abstract long bytes();
+    }
+
+    /**
+     * A*：StateTable 保存状态与父指针，二叉堆按 (f, -g, 下标) 排序
+     */
+    private static final class AStar extends Search {
+        private final int maxStates;
+        private final StateTable table;
+        private int[] g = new int[1 << 12];
+        private boolean[] closed = new boolean[1 << 12];
+        private long[] heap = new long[1 << 12];
+        private int heapSize;
+
+        AStar(Puzzle puzzle, Heuristic h, int maxStates) {
+            super(puzzle, h);
+            this.maxStates = maxStates;
+            this.table = new StateTable(words, 1 << 12);
+        }
+
+        @Override
+        List<Board.MoveEntry> run(long[] start) {
+            long[] root = start.clone();
+            puzzle.canonicalize(root, 0);
+            table.add(root, 0, -1, -1);
+            g[0] = 0;
+            startEstimate = estimate(root, 0);
+            push(startEstimate, 0, 0);
+
+            Puzzle.Cursor cursor = puzzle.cursor();
+            int[] buf = new int[puzzle.getBlockCount() * 4];
+            long[] next = new long[words];
+            while (heapSize > 0) {
+                long top = pop();
+                int i = (int) top;
+                if (closed[i]) continue;
+                closed[i] = true;
+                long[] keys = table.keys();
+                if (puzzle.isGoal(keys, i * words)) {
+                    return BfsSolver.path(puzzle, table, start, i);
+                }
+                if (table.size() > maxStates || halted()) {
+                    aborted = true;
+                    return null;
+                }
+                expanded++;
+                cursor.load(keys, i * words);
+                int n = cursor.moves(buf);
+                int ng = g[i] + 1;
+                for (int k = 0; k < n; k++) {
+                    puzzle.apply(keys, i * words, buf[k], next, 0);
+                    puzzle.canonicalize(next, 0);
+                    int j = table.indexOf(next, 0);
+                    if (j < 0) {
+                        j = table.add(next, 0, i, buf[k]);
+                        ensure(j);
+                    } else if (ng >= g[j]) {
+                        continue;
+                    } else {
+                        // 启发不一致时重新打开
+                        table.setParent(j, i, buf[k]);
+                        closed[j] = false;
+                    }
+                    g[j] = ng;
+                    int est = estimate(next, 0);
+                    if (est < Heuristic.INFINITE) push(ng + est, ng, j);
+                }
+            }
+            return null;
+        }
+
+        private void ensure(int j) {
+            if (j >= g.length) {
+                g = Arrays.copyOf(g, g.length * 2);
+                closed = Arrays.copyOf(closed, closed.length * 2);
+            }
+        }
+
+        // 堆元素：f 占高 16 位，(0xFFFF - g) 占次 16 位（同 f 时优先更深的结点），下标占低 32 位
+        private void push(int f, int depth, int index) {
+            long e = ((long) Math.min(f, 0xFFFF) << 48) | ((long) (0xFFFF - Math.min(depth, 0xFFFF)) << 32) | index;
+            if (heapSize == heap.length) heap = Arrays.copyOf(heap, heap.length * 2);
+            int c = heapSize++;
+            while (c > 0) {
+                int p = (c - 1) >>> 1;
+                if (heap[p] <= e) break;
+                heap[c] = heap[p];
+                c = p;
+            }
+            heap[c] = e;
+        }
+
+        private long pop() {
+            long top = heap[0];
+            long last = heap[--heapSize];
+            int c = 0;
+            while (true) {
+                int l = 2 * c + 1;
+                if (l >= heapSize) break;
+                int m = l + 1 < heapSize && heap[l + 1] < heap[l] ? l + 1 : l;
+                if (heap[m] >= last) break;
+                heap[c] = heap[m];
+                c = m;
+            }
+            if (heapSize > 0) heap[c] = last;
+            return top;
+        }
+
+        @Override
+        long stored() {
+            return table.size();
+        }
+
+        @Override
+        long bytes() {
+            return table.bytes() + (long) g.length * 4 + closed.length + (long) heap.length * 8;
+        }
+    }
+
+    /**
+     * IDA*：递归深度优先，路径保存在按深度平铺的数组中；
+     * 置换表为直接映射的固定大小数组，记录本轮到达各状态时的最小 g，用于剪除重复与更差的到达
+     */
+    private static final class IdaStar extends Search {
+        private final int mask;
+        private final long[] ttKeys;
+        private final int[] ttG;
+        private final int[] ttRound;
+        private long used;
+        private long[] path = new long[0];
+        private int[] pathMoves = new int[0];
+        private int[][] buffers = new int[0][];
+        private final Puzzle.Cursor cursor;
+        private int bound;
+        private int nextBound;
+
+        IdaStar(Puzzle puzzle, Heuristic h, int slots) {
+            super(puzzle, h);
+            int size = Integer.highestOneBit(Math.max(16, slots - 1)) << 1;
+            this.mask = size - 1;
+            this.ttKeys = new long[size * words];
+            this.ttG = new int[size];
+            this.ttRound = new int[size];
+            this.cursor = puzzle.cursor();
+        }
+
+        @Override
+        List<Board.MoveEntry> run(long[] start) {
+            ensureDepth(0);
+            System.arraycopy(start, 0, path, 0, words);
+            puzzle.canonicalize(path, 0);
+            bound = startEstimate = estimate(path, 0);
+            while (bound < Heuristic.INFINITE && !aborted) {
+                iterations++;
+                nextBound = Heuristic.INFINITE;
+                int depth = dfs(0);
+                if (depth >= 0) {
+                    long[] parents = Arrays.copyOf(path, depth * words);
+                    return puzzle.realize(start, parents, Arrays.copyOf(pathMoves, depth));
+                }
+                bound = nextBound;
+            }
+            return null;
+        }
+
+        /**
+         * 在深度 g 处搜索
+         * @return 找到解时返回解的长度，否则返回 -1
+         */
+        private int dfs(int g) {
+            int off = g * words;
+            int f = g + estimate(path, off);
+            if (f > bound) {
+                nextBound = Math.min(nextBound, f);
+                return -1;
+            }
+            if (puzzle.isGoal(path, off)) return g;
+            if (!visit(off, g) || halted()) return -1;
+
+            expanded++;
+            ensureDepth(g + 1);
+            cursor.load(path, off);
+            int[] buf = buffers[g];
+            int n = cursor.moves(buf);
+            for (int k = 0; k < n; k++) {
+                puzzle.apply(path, off, buf[k], path, off + words);
+                puzzle.canonicalize(path, off + words);
+                pathMoves[g] = buf[k];
+                int found = dfs(g + 1);
+                if (found >= 0 || aborted) return found;
+            }
+            return -1;
+        }
+
+        /**
+         * 在置换表中登记状态；本轮已以不大于 g 的深度到达过时返回 false
+         */
+        private boolean visit(int off, int g) {
+            int slot = (int) StateCodec.hash(path, off, words) & mask;
+            if (ttRound[slot] == iterations && StateCodec.equals(ttKeys, slot * words, path, off, words)) {
+                if (ttG[slot] <= g) return false;
+            } else if (ttRound[slot] == 0) {
+                used++;
+            }
+            System.arraycopy(path, off, ttKeys, slot * words, words);
+            ttG[slot] = g;
+            ttRound[slot] = iterations;
+            return true;
+        }
+
+        private void ensureDepth(int depth) {
+            if (depth < buffers.length) return;
+            int cap = Math.max(64, depth * 2);
+            path = Arrays.copyOf(path, cap * words);
+            pathMoves = Arrays.copyOf(pathMoves, cap);
+            int old = buffers.length;
+            buffers = Arrays.copyOf(buffers, cap);
+            for (int d = old; d < cap; d++) buffers[d] = new int[puzzle.getBlockCount() * 4];
+        }
+
+        @Override
+        long stored() {
+            return used;
+        }
+
+        @Override
+        long bytes() {
+            return (long) ttKeys.length * 8 + (long) ttG.length * 4 + (long) ttRound.length * 4
+                    + (long) path.length * 8 + (long) buffers.length * puzzle.getBlockCount() * 16;
+        }
+    }
+}
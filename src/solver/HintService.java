@@ -0,0 +1,240 @@
+package solver;
+
+import model.Board;
+import model.GameMap;
+import util.Log;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 游戏内提示服务：给定当前棋盘，返回下一步最优走法与剩余最少步数。
+ * <p>计算在共享的提示线程上进行，调用方（Swing EDT）只拿到 CompletableFuture；
+ * 优先查询已生成的距离表，没有时经 SolutionCache 退回 BFS 求解，并把最优路径上每个状态的提示都放入缓存，
+ * 因此沿提示继续走时后续提示无需再次搜索。</p>
+ * <p>玩家移动后应调用 {@link #cancel()}：正在进行的搜索在下一次扩展状态时自行停止，其结果不会交付。
+ * 取消不中断后台线程，因此不会打断其上正在读写的距离表或求解缓存文件。</p>
+ */
+public final class HintService {
+    /** 缓存的最大状态数 */
+    public static final int CACHE_SIZE = 1 << 16;
+    /** 提示结果的距离：搜索超出规模上限而放弃，是否有解未知 */
+    public static final int ABORTED = -2;
+
+    /** 所有提示服务共用的后台线程（守护线程，不阻止程序退出） */
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "hint");
+        t.setDaemon(true);
+        return t;
+    });
+    /** 生成距离表的后台线程：生成可能耗时数秒且无法取消，不与提示请求共用线程 */
+    private static final ExecutorService TABLE_EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "distance");
+        t.setDaemon(true);
+        return t;
+    });
+    private static final Log log = Log.getInstance();
+
+    /**
+     * 提示结果
+     * @param move     下一步最优走法；已胜利、无解或搜索放弃时为 null
+     * @param distance 剩余最少步数；无解时为 -1，搜索超出上限而放弃时为 {@link #ABORTED}
+     */
+    public record Hint(Board.MoveEntry move, int distance) { }
+
+    private final GameMap map;
+    private final Puzzle puzzle;
+    /** 真实（未规范化）状态到提示的 LRU 缓存，仅在持有自身锁时访问 */
+    private final Map<Key, Hint> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Hint> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+    private DistanceTable table;
+    private boolean tableChecked;
+    /** 距离表生成失败（如状态数超出上限），不会再就绪 */
+    private boolean tableFailed;
+    private Future<?> running;
+    private CompletableFuture<Hint> pending;
+    /** 进行中请求的停止标志 */
+    private AtomicBoolean stopping;
+
+    /**
+     * @param map   地图模型，用于查找距离表
+     * @param board 游戏中的棋盘，提供方块顺序与几何信息
+     */
+    public HintService(GameMap map, Board board) {
+        this.map = map;
+        this.puzzle = new Puzzle(board);
+    }
+
+    /**
+     * 请求当前棋盘的提示；命中缓存时立即完成，否则取消上一次未完成的请求并在后台计算
+     * @param board 当前棋盘，只在调用线程上读取一次
+     * @return 提示结果；被取消时以 CancellationException 结束
+     */
+    public synchronized CompletableFuture<Hint> request(Board board) {
+        long[] start = puzzle.encode(board);
+        Hint cached;
+        synchronized (cache) {
+            cached = cache.get(new Key(start));
+        }
+        if (cached != null) return CompletableFuture.completedFuture(cached);
+
+        cancel();
+        Board snapshot = board.copy();
+        CompletableFuture<Hint> result = new CompletableFuture<>();
+        AtomicBoolean stop = new AtomicBoolean();
+        pending = result;
+        stopping = stop;
+        running = EXECUTOR.submit(() -> {
+            try {
+                result.complete(compute(snapshot, start, stop));
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 在独立的后台线程上打开距离表，不存在时先生成；之后 {@link #distance(Board)} 可即时查询。
+     * 生成期间的提示请求不必等待，照常按需搜索；生成失败（如状态数超出上限）时同样退回搜索。
+     */
+    public void prepareTable() {
+        TABLE_EXECUTOR.execute(() -> {
+            try {
+                DistanceTable t = DistanceTable.openOrBuild(map);
+                synchronized (this) {
+                    table = t;
+                    tableChecked = true;
+                }
+            } catch (IOException | IllegalStateException e) {
+                log.warn("距离表生成失败，改用搜索：" + e.getMessage());
+                synchronized (this) {
+                    tableFailed = true;
+                }
+            }
+        });
+    }
+
+    /**
+     * 立即查询棋盘到胜利的最少步数：只查距离表、不搜索，耗时为微秒级，可在每步移动后于 EDT 上调用
+     * @return 步数；无解时为 {@link DistanceTable#NO_SOLUTION}；距离表未就绪或状态不在表中时为 -1
+     */
+    public int distance(Board board) {
+        DistanceTable t;
+        synchronized (this) {
+            t = tableChecked ? table : null;
+        }
+        return t == null ? -1 : t.distance(board);
+    }
+
+    /**
+     * 距离表是否已确定无法使用（{@link #prepareTable()} 生成失败，如地图可达状态数超出上限），
+     * 此时 {@link #distance(Board)} 始终返回 -1
+     */
+    public synchronized boolean isTableUnavailable() {
+        return tableFailed;
+    }
+
+    /**
+     * 取消进行中的提示计算（玩家移动、撤销或重玩时调用）
+     */
+    public synchronized void cancel() {
+        if (running == null) return;
+        stopping.set(true);
+        running.cancel(false);
+        pending.cancel(false);
+        running = null;
+        pending = null;
+        stopping = null;
+    }
+
+    // 在后台线程上计算提示
+    private Hint compute(Board board, long[] start, AtomicBoolean stop) {
+        DistanceTable t = table();
+        if (t != null) {
+            int d = t.distance(board);
+            if (d == 0) return remember(start, new Hint(null, 0));
+            if (d == DistanceTable.NO_SOLUTION) return remember(start, new Hint(null, -1));
+            Board.MoveEntry move = d > 0 ? t.bestMove(board) : null;
+            if (move != null) return remember(start, new Hint(move, d));
+        }
+
+        Solution solution = SolutionCache.getInstance().solve(map, board,
+                new BfsSolver(BfsSolver.DEFAULT_MAX_STATES, stop::get));
+        if (stop.get()) throw new CancellationException();
+        if (!solution.solved()) {
+            // 搜索因规模上限放弃时结果未知，不缓存，之后仍可重试
+            return solution.stats().extras().containsKey("aborted") ? new Hint(null, ABORTED)
+                    : remember(start, new Hint(null, -1));
+        }
+        // 沿最优路径逐步前进，路径上每个状态的提示都可直接得出
+        List<Board.MoveEntry> moves = solution.moves();
+        long[] state = start.clone();
+        long[] next = new long[state.length];
+        for (int k = 0; k < moves.size(); k++) {
+            remember(state, new Hint(moves.get(k), moves.size() - k));
+            puzzle.apply(state, 0, encode(moves.get(k)), next, 0);
+            System.arraycopy(next, 0, state, 0, state.length);
+        }
+        remember(state, new Hint(null, 0));
+        synchronized (cache) {
+            return cache.get(new Key(start));
+        }
+    }
+
+    // 按需打开距离表，成功打开（或确认不存在）后不再重试
+    private synchronized DistanceTable table() {
+        if (!tableChecked) {
+            try {
+                table = DistanceTable.open(map);
+                tableChecked = true;
+            } catch (IOException e) {
+                log.warn("距离表读取失败，改用搜索：" + e.getMessage());
+            }
+        }
+        return table;
+    }
+
+    private Hint remember(long[] state, Hint hint) {
+        synchronized (cache) {
+            cache.put(new Key(state.clone()), hint);
+        }
+        return hint;
+    }
+
+    // 移动记录转换为走法编码
+    private int encode(Board.MoveEntry entry) {
+        for (int i = 0; i < puzzle.getBlockCount(); i++) {
+            if (puzzle.getId(i) == entry.blockId()) return (i << 2) | entry.dir().ordinal();
+        }
+        throw new IllegalArgumentException("未知方块 ID：" + entry.blockId());
+    }
+
+    /**
+     * 以压缩状态内容作为缓存键
+     */
+    private record Key(long[] state) {
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key k && Arrays.equals(state, k.state);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(state);
+        }
+    }
+}
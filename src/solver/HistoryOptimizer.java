@@ -0,0 +1,95 @@
+package solver;
+
+import model.Board;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 玩家走法记录优化器：在玩家实际经过的局面之间寻找最短的等价走法。
+ * <p>先把记录逐步回放为压缩状态并放入哈希去重表（重复局面只保留一份），再在这些局面上做广度优先搜索：
+ * 任意两个已访问局面之间只要一步可达就连边，因此既能删去来回绕圈的环，也能利用记录中并不相邻的捷径。
+ * 搜索只在已访问的局面内进行，数千步的记录也只需数毫秒。</p>
+ * <p>结果不超过原记录长度，但不一定是地图的全局最优解（后者请使用求解器）。</p>
+ */
+public final class HistoryOptimizer {
+    private HistoryOptimizer() { }
+
+    /**
+     * 优化结果
+     * @param moves     最短等价走法（从记录的起始局面走到记录中最早可达的胜利局面）
+     * @param wasted    原记录比最短等价走法多出的步数
+     * @param positions 记录中出现的不同局面数（含起始局面）
+     */
+    public record Result(List<Board.MoveEntry> moves, int wasted, int positions) { }
+
+    /**
+     * 优化走法记录
+     * @param board   执行完全部记录后的棋盘（如胜利时游戏中的棋盘），用于倒推起始局面
+     * @param history 按时间顺序排列的走法记录【最旧→最新】
+     * @return 优化结果；记录中没有胜利局面时以记录的最终局面为终点
+     */
+    public static Result optimize(Board board, List<Board.MoveEntry> history) {
+        Puzzle puzzle = new Puzzle(board, Puzzle.Symmetry.NONE);
+        int words = puzzle.getWords();
+        int n = history.size();
+
+        // 从最终局面沿反方向倒推，得到记录中每一步之前的真实状态
+        long[] states = new long[(n + 1) * words];
+        System.arraycopy(puzzle.encode(board), 0, states, n * words, words);
+        for (int k = n - 1; k >= 0; k--) {
+            puzzle.apply(states, (k + 1) * words, encode(puzzle, history.get(k)) ^ 1, states, k * words);
+        }
+
+        StateTable table = new StateTable(words, n + 1);
+        int end = -1;
+        for (int k = 0; k <= n; k++) {
+            int index = table.add(states, k * words, -1, -1);
+            if (index < 0) index = table.indexOf(states, k * words);
+            if (end < 0 && puzzle.isGoal(states, k * words)) end = index;
+        }
+        if (end < 0) end = table.indexOf(states, n * words);
+
+        // 在已访问局面构成的图上从起点（下标 0）广度优先搜索
+        int size = table.size();
+        int[] parent = new int[size];
+        int[] via = new int[size];
+        Arrays.fill(parent, -2);
+        parent[0] = -1;
+        int[] queue = new int[size];
+        int head = 0, tail = 0;
+        queue[tail++] = 0;
+        Puzzle.Cursor cursor = puzzle.cursor();
+        int[] buf = new int[puzzle.getBlockCount() * 4];
+        long[] next = new long[words];
+        long[] keys = table.keys();
+        while (head < tail && parent[end] == -2) {
+            int i = queue[head++];
+            cursor.load(keys, i * words);
+            int m = cursor.moves(buf);
+            for (int k = 0; k < m; k++) {
+                puzzle.apply(keys, i * words, buf[k], next, 0);
+                int j = table.indexOf(next, 0);
+                if (j < 0 || parent[j] != -2) continue;
+                parent[j] = i;
+                via[j] = buf[k];
+                queue[tail++] = j;
+            }
+        }
+
+        List<Board.MoveEntry> moves = new ArrayList<>();
+        for (int i = end; parent[i] >= 0; i = parent[i]) moves.add(puzzle.toMoveEntry(via[i]));
+        Collections.reverse(moves);
+        return new Result(moves, n - moves.size(), size);
+    }
+
+    // 移动记录转换为走法编码（方块下标 << 2 | 方向序号）
+    private static int encode(Puzzle puzzle, Board.MoveEntry entry) {
+        for (int i = 0; i < puzzle.getBlockCount(); i++) {
+            if (puzzle.getId(i) == entry.blockId()) return (i << 2) | entry.dir().ordinal();
+        }
+        throw new IllegalArgumentException("未知方块 ID：" + entry.blockId());
+    }
+}
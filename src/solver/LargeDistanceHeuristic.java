@@ -0,0 +1,33 @@
+package solver;
+
+import java.util.Arrays;
+
+/**
+ * 曼哈顿距离启发：每一步最多让 LARGE 方块移动一格，
+ * 因此其左上角到最近胜利位置的曼哈顿距离是可采纳且一致的下界。
+ */
+final class LargeDistanceHeuristic implements Heuristic {
+    private final Puzzle puzzle;
+    /** distance[cell]：LARGE 左上角位于 cell 时到最近胜利位置的曼哈顿距离 */
+    private final int[] distance;
+
+    LargeDistanceHeuristic(Puzzle puzzle) {
+        this.puzzle = puzzle;
+        int rows = puzzle.getRows(), cols = puzzle.getCols();
+        this.distance = new int[rows * cols];
+        Arrays.fill(distance, INFINITE);
+        for (int goal = 0; goal < rows * cols; goal++) {
+            if (!puzzle.isGoalHead(goal)) continue;
+            for (int cell = 0; cell < rows * cols; cell++) {
+                int d = Math.abs(cell / cols - goal / cols) + Math.abs(cell % cols - goal % cols);
+                distance[cell] = Math.min(distance[cell], d);
+            }
+        }
+    }
+
+    @Override
+    public int estimate(long[] s, int off) {
+        if (puzzle.getLarge() < 0) return INFINITE;
+        return distance[puzzle.getCodec().get(s, off, puzzle.getLarge())];
+    }
+}
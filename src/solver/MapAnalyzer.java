@@ -0,0 +1,182 @@
+package solver;
+
+import model.Board;
+import model.GameMap;
+import util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 批量地图分析器（无界面命令）：并行分析目录下的全部地图，输出 CSV 或 JSON 报告。
+ * <p>每张地图一个任务，线程数取配置项 solverThreads；报告按文件名排序输出，与完成顺序无关。</p>
+ * <p>用法：{@code java solver.MapAnalyzer [--json] [--out 文件] [地图目录]}，目录缺省为 maps。</p>
+ */
+public final class MapAnalyzer {
+    private static final Log log = Log.getInstance();
+
+    /**
+     * 单张地图的分析结果
+     * @param file       地图文件名
+     * @param valid      地图是否通过 GameMap 校验
+     * @param optimal    最少步数，无解或未完成时为 -1
+     * @param reachable  初始布局可达的规范状态数，超出上限时为 -1
+     * @param goals      可达状态中的胜利状态数，超出上限时为 -1
+     * @param branching  可达状态的平均合法走法数
+     * @param solveMs    BFS 求解耗时（毫秒）
+     * @param moveLimit  地图声明的步数限制
+     * @param note       附加说明（如超出状态上限），无则为空串
+     */
+    public record Report(String file, boolean valid, int optimal, long reachable, long goals, double branching,
+                         double solveMs, int moveLimit, String note) {
+        /** 声明步数限制与最少步数之差，无解时为 0 */
+        public int gap() {
+            return optimal >= 0 ? moveLimit - optimal : 0;
+        }
+    }
+
+    private final int threads;
+    private final int maxStates;
+
+    /**
+     * @param threads   并行分析的线程数
+     * @param maxStates 每张地图最多枚举的状态数
+     */
+    public MapAnalyzer(int threads, int maxStates) {
+        this.threads = Math.max(1, threads);
+        this.maxStates = maxStates;
+    }
+
+    /**
+     * 分析目录下的全部 .txt 地图
+     * @return 按文件名排序的报告
+     */
+    public List<Report> analyzeAll(File dir) throws InterruptedException {
+        File[] files = dir.listFiles((d, name) -> name.endsWith(".txt"));
+        if (files == null) return List.of();
+        Arrays.sort(files, Comparator.comparing(File::getName));
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Report>> futures = new ArrayList<>();
+            for (File f : files) futures.add(pool.submit(() -> analyze(f)));
+            List<Report> reports = new ArrayList<>();
+            for (int i = 0; i < files.length; i++) {
+                try {
+                    reports.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    log.error("分析地图 " + files[i].getName() + " 失败：" + e.getCause());
+                    reports.add(new Report(files[i].getName(), false, -1, -1, -1, 0, 0, 0,
+                            String.valueOf(e.getCause())));
+                }
+            }
+            return reports;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * 分析单张地图：BFS 求最优解并计时，再枚举整个连通分量统计状态数、胜利状态数与平均分支因子
+     */
+    public Report analyze(File file) {
+        GameMap map = new GameMap(file.getPath());
+        if (!map.isValid()) return new Report(file.getName(), false, -1, -1, -1, 0, 0, map.getMoveLimit(), "");
+        Board board = new Board(map);
+        Solution solution = new BfsSolver(maxStates).solve(board.copy());
+        double solveMs = solution.stats().elapsedNanos() / 1e6;
+
+        Puzzle puzzle = new Puzzle(board);
+        StateTable table;
+        try {
+            table = DistanceTable.reachable(puzzle, puzzle.encode(board), maxStates);
+        } catch (IllegalStateException e) {
+            return new Report(file.getName(), true, solution.length(), -1, -1, 0, solveMs, map.getMoveLimit(),
+                    e.getMessage());
+        }
+        int words = puzzle.getWords();
+        Puzzle.Cursor cursor = puzzle.cursor();
+        int[] buf = new int[puzzle.getBlockCount() * 4];
+        long goals = 0, moves = 0;
+        for (int i = 0; i < table.size(); i++) {
+            if (puzzle.isGoal(table.keys(), i * words)) goals++;
+            cursor.load(table.keys(), i * words);
+            moves += cursor.moves(buf);
+        }
+        return new Report(file.getName(), true, solution.length(), table.size(), goals,
+                (double) moves / table.size(), solveMs, map.getMoveLimit(), "");
+    }
+
+    /**
+     * 以 CSV 格式输出报告（带表头）
+     */
+    public static void writeCsv(List<Report> reports, PrintStream out) {
+        out.println("file,valid,optimal,reachable,goals,branching,solveMs,moveLimit,gap,note");
+        for (Report r : reports) {
+            out.println(String.join(",", csv(r.file()), String.valueOf(r.valid()), String.valueOf(r.optimal()),
+                    String.valueOf(r.reachable()), String.valueOf(r.goals()),
+                    String.format(Locale.ROOT, "%.3f", r.branching()),
+                    String.format(Locale.ROOT, "%.1f", r.solveMs()),
+                    String.valueOf(r.moveLimit()), String.valueOf(r.gap()), csv(r.note())));
+        }
+    }
+
+    /**
+     * 以 JSON 数组格式输出报告
+     */
+    public static void writeJson(List<Report> reports, PrintStream out) {
+        out.println("[");
+        for (int i = 0; i < reports.size(); i++) {
+            Report r = reports.get(i);
+            out.printf(Locale.ROOT, "  {\"file\": %s, \"valid\": %b, \"optimal\": %d, \"reachable\": %d, "
+                            + "\"goals\": %d, \"branching\": %.3f, \"solveMs\": %.1f, \"moveLimit\": %d, "
+                            + "\"gap\": %d, \"note\": %s}%s%n",
+                    json(r.file()), r.valid(), r.optimal(), r.reachable(), r.goals(), r.branching(), r.solveMs(),
+                    r.moveLimit(), r.gap(), json(r.note()), i + 1 < reports.size() ? "," : "");
+        }
+        out.println("]");
+    }
+
+    private static String csv(String s) {
+        return s.contains(",") || s.contains("\"") ? "\"" + s.replace("\"", "\"\"") + "\"" : s;
+    }
+
+    private static String json(String s) {
+        return "\"" + s.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        boolean asJson = false;
+        String out = null;
+        String dir = "maps";
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--json" -> asJson = true;
+                case "--out" -> out = args[++i];
+                default -> dir = args[i];
+            }
+        }
+        MapAnalyzer analyzer = new MapAnalyzer(ParallelBfsSolver.configuredThreads(), BfsSolver.DEFAULT_MAX_STATES);
+        List<Report> reports = analyzer.analyzeAll(new File(dir));
+        PrintStream ps = out == null ? System.out
+                : new PrintStream(Files.newOutputStream(Paths.get(out)), true, StandardCharsets.UTF_8);
+        try {
+            if (asJson) writeJson(reports, ps);
+            else writeCsv(reports, ps);
+        } finally {
+            if (ps != System.out) ps.close();
+        }
+    }
+}
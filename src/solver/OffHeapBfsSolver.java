@@ -0,0 +1,144 @@
+package solver;
+
+import model.Board;
+import util.Log;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 使用堆外去重表的广度优先求解器，面向状态数上亿的大地图。
+ * <p>已访问状态全部存放在 {@link OffHeapStateTable} 中，每个状态只附带 1 字节回退走法；
+ * 堆上只保留当前层与下一层的压缩状态数组（基本类型数组，不产生对象）。
+ * 统计中的 bytesPerState 为去重表占用的字节数（堆外各段加上目录）除以状态数。</p>
+ */
+public class OffHeapBfsSolver implements Solver {
+    /** 默认最多存储的状态数，超出后放弃搜索 */
+    public static final long DEFAULT_MAX_STATES = 1L << 28;
+
+    private final Log log = Log.getInstance();
+    private final long maxStates;
+    private final long expected;
+
+    /**
+     * 不预估状态数：去重表从单个段开始，按需成段增长
+     */
+    public OffHeapBfsSolver() {
+        this(DEFAULT_MAX_STATES, 0);
+    }
+
+    /**
+     * @param maxStates 最多存储的状态数，超出后视为无解并在统计中标记 aborted
+     * @param expected  预计状态数，去重表按此预先建段（不超过 maxStates）；估计偏小时按段增长，不重新分配
+     */
+    public OffHeapBfsSolver(long maxStates, long expected) {
+        this.maxStates = maxStates;
+        this.expected = expected;
+    }
+
+    @Override
+    public Solution solve(Board board) {
+        long begin = System.nanoTime();
+        Puzzle puzzle = new Puzzle(board);
+        if (puzzle.getBlockCount() * 4 > OffHeapStateTable.ROOT) {
+            throw new IllegalArgumentException("方块数过多，回退走法无法用单字节存储");
+        }
+        int words = puzzle.getWords();
+        OffHeapStateTable table = new OffHeapStateTable(puzzle.getCodec(), Math.min(expected, maxStates));
+        Puzzle.Cursor cursor = puzzle.cursor();
+        int[] buf = new int[puzzle.getBlockCount() * 4];
+        long[] next = new long[words];
+        long expanded = 0;
+        long frontierBytes = 0;
+
+        long[] start = puzzle.encode(board);
+        long[] root = start.clone();
+        puzzle.canonicalize(root, 0);
+        table.add(root, 0, OffHeapStateTable.ROOT);
+        long[] goal = puzzle.isGoal(root, 0) ? root : null;
+
+        long[] frontier = root.clone();
+        int frontierSize = 1;
+        long[] nextFrontier = new long[16 * words];
+        boolean aborted = false;
+        while (goal == null && frontierSize > 0) {
+            int nextSize = 0;
+            for (int f = 0; f < frontierSize && goal == null; f++) {
+                if (table.size() > maxStates || Thread.currentThread().isInterrupted()) {
+                    aborted = true;
+                    break;
+                }
+                cursor.load(frontier, f * words);
+                expanded++;
+                int n = cursor.moves(buf);
+                for (int k = 0; k < n; k++) {
+                    puzzle.apply(frontier, f * words, buf[k], next, 0);
+                    puzzle.canonicalize(next, 0);
+                    if (table.add(next, 0, puzzle.reverse(frontier, f * words, buf[k], next, 0)) < 0) continue;
+                    if (puzzle.isGoal(next, 0)) {
+                        goal = next.clone();
+                        break;
+                    }
+                    if ((nextSize + 1) * words > nextFrontier.length) {
+                        nextFrontier = Arrays.copyOf(nextFrontier, nextFrontier.length * 2);
+                    }
+                    System.arraycopy(next, 0, nextFrontier, nextSize++ * words, words);
+                }
+            }
+            if (aborted) break;
+            frontierBytes = Math.max(frontierBytes, (long) (frontier.length + nextFrontier.length) * 8);
+            long[] t = frontier;
+            frontier = nextFrontier;
+            nextFrontier = t;
+            frontierSize = nextSize;
+        }
+
+        Solution.Stats stats = new Solution.Stats(expanded, table.size(), table.bytes() + frontierBytes,
+                System.nanoTime() - begin);
+        stats.extras().put("bytesPerState", Math.round(table.bytes() * 100.0 / table.size()) / 100.0);
+        if (aborted) stats.extras().put("aborted", 1);
+        if (puzzle.getSymmetry() == Puzzle.Symmetry.MIRROR) stats.extras().put("mirror", 1);
+        if (goal == null) {
+            log.info("堆外 BFS 无解：" + stats);
+            return new Solution(false, List.of(), stats);
+        }
+        List<Board.MoveEntry> moves = path(puzzle, table, start, goal);
+        log.info("堆外 BFS 求得 " + moves.size() + " 步最优解：" + stats);
+        return new Solution(true, moves, stats);
+    }
+
+    /**
+     * 从目标沿回退走法走回起点，再把规范状态上的走法映射回真实方块 ID
+     */
+    private static List<Board.MoveEntry> path(Puzzle puzzle, OffHeapStateTable table, long[] start, long[] goal) {
+        int words = puzzle.getWords();
+        int[] backs = new int[16];
+        long[] chain = Arrays.copyOf(goal, 17 * words);
+        int depth = 0;
+        long[] child = goal.clone();
+        long[] parent = new long[words];
+        // 先沿回退走法收集从目标到起点的全部规范状态
+        while (true) {
+            int back = table.back(table.indexOf(child, 0));
+            if (back == OffHeapStateTable.ROOT) break;
+            puzzle.apply(child, 0, back, parent, 0);
+            puzzle.canonicalize(parent, 0);
+            if (depth == backs.length) {
+                backs = Arrays.copyOf(backs, depth * 2);
+                chain = Arrays.copyOf(chain, (depth * 2 + 1) * words);
+            }
+            backs[depth++] = back;
+            System.arraycopy(parent, 0, chain, depth * words, words);
+            System.arraycopy(parent, 0, child, 0, words);
+        }
+        // chain[k] 为距目标 k 步的状态；第 i 步从 chain[depth - i] 走到 chain[depth - i - 1]
+        long[] parents = new long[depth * words];
+        int[] moves = new int[depth];
+        for (int i = 0; i < depth; i++) {
+            int c = depth - i - 1;
+            System.arraycopy(chain, (c + 1) * words, parents, i * words, words);
+            moves[i] = puzzle.reverse(chain, c * words, backs[c], chain, (c + 1) * words);
+        }
+        return puzzle.realize(start, parents, moves);
+    }
+}
@@ -0,0 +1,279 @@
+package solver;
+
+import model.StateCodec;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * 堆外的压缩状态去重表：键与回退走法都存放在直接缓冲区中，不产生任何 Java 对象，GC 无需扫描。
+ * <p>每个槽保存 1 字节回退走法与按实际位数紧凑存放的状态：在该状态上执行回退走法并规范化即回到父状态，
+ * 因此无需 4 字节的父指针列即可回溯路径。4×5 的经典布局键只有 50 位，连同回退走法每槽 8 字节。</p>
+ * <p>槽分布在固定 {@link #SEGMENT_SLOTS} 个槽的段中，段内线性探测。哈希高位经目录映射到段，
+ * 每段对应至少 {@link #BUCKETS_PER_SEGMENT} 个目录项；某段装载超过 {@link #MAX_LOAD} 时
+ * 一次新增约 1/8 的段（同一次新增的段共用一块直接缓冲区），把目录项从旧段均匀迁入新段，再逐段原地重建旧段。
+ * 已分配的缓冲区从不重新分配或复制，扩容后装载因子仍不低于 0.8 × 8 / 9 ≈ 0.71，
+ * 经典布局每个状态约 8 / 0.8 ～ 8 / 0.71，即 10 ～ 11.3 字节。</p>
+ * <p>槽号在下一次 {@link #add} 之前有效（扩容会移动状态）。</p>
+ */
+final class OffHeapStateTable {
+    /** 回退走法的空值：起点状态 */
+    static final int ROOT = 0xFE;
+    /** 单段装载因子上限，超出后新增段 */
+    static final double MAX_LOAD = 0.8;
+    /** 每段槽数 */
+    static final int SEGMENT_SLOTS = 1 << 12;
+
+    /** 每段至少对应的目录项数，迁移目录项后各段负载的差异不超过 1/64 */
+    private static final int BUCKETS_PER_SEGMENT = 64;
+    private static final int SEGMENT_LIMIT = (int) (SEGMENT_SLOTS * MAX_LOAD);
+    /** 单块直接缓冲区的字节数上限 */
+    private static final int MAX_BUFFER_BYTES = 1 << 30;
+
+    private final int words;
+    /** 各 long 在槽内的字节偏移（第 0 字节为回退走法）与保留的字节掩码 */
+    private final int[] offsets;
+    private final long[] masks;
+    private final int slotBytes;
+    /** 各段所在的缓冲区与段首字节偏移；缓冲区末尾多留 8 字节以便按 long 读取最后一个槽 */
+    private ByteBuffer[] buffers = new ByteBuffer[16];
+    private int[] bases = new int[16];
+    /** 各段已存放的状态数（以上数组同步加倍，前 segmentCount 项有效） */
+    private int[] counts = new int[16];
+    /** 各段对应的目录项数 */
+    private int[] owned = new int[16];
+    private int segmentCount;
+    /** 已分配的直接缓冲区总字节数 */
+    private long allocated;
+    /** 目录：哈希高 dirBits 位 -> 段号 */
+    private int[] directory;
+    private int dirBits;
+    private long size;
+    /** 重建段时读出状态用的缓冲 */
+    private final long[] key;
+    /** 重建段时标记移走状态的槽 */
+    private final long[] removed = new long[SEGMENT_SLOTS / 64];
+
+    /**
+     * @param codec    状态编码器，决定每个状态紧凑存放所需的字节数
+     * @param expected 预计状态数，按此预先建段可避免扩容；0 表示从单个段开始增长
+     */
+    OffHeapStateTable(StateCodec codec, long expected) {
+        this.words = codec.getWords();
+        this.offsets = new int[words];
+        this.masks = new long[words];
+        int offset = 1;
+        for (int w = 0; w < words; w++) {
+            int bytes = Math.max(1, (codec.wordBits(w) + 7) / 8);
+            offsets[w] = offset;
+            masks[w] = bytes == 8 ? -1L : (1L << (8 * bytes)) - 1;
+            offset += bytes;
+        }
+        this.slotBytes = offset;
+        this.key = new long[words];
+
+        long initial = Math.max(1, (expected + SEGMENT_LIMIT - 1) / SEGMENT_LIMIT);
+        if (initial > Integer.MAX_VALUE / BUCKETS_PER_SEGMENT) throw new IllegalStateException("堆外状态表段数过多");
+        int n = (int) initial;
+        dirBits = 32 - Integer.numberOfLeadingZeros(BUCKETS_PER_SEGMENT * n - 1);
+        directory = new int[1 << dirBits];
+        addSegments(n);
+        for (int i = 0; i < directory.length; i++) {
+            directory[i] = i % n;
+            owned[i % n]++;
+        }
+    }
+
+    /** 已存放状态数 */
+    long size() {
+        return size;
+    }
+
+    /** 槽数 */
+    long capacity() {
+        return (long) segmentCount * SEGMENT_SLOTS;
+    }
+
+    /**
+     * 占用的字节数：堆外的直接缓冲区加上堆上的目录
+     */
+    long bytes() {
+        return allocated + (long) directory.length * Integer.BYTES;
+    }
+
+    /**
+     * 查找状态所在槽
+     * @return 槽号，不存在时返回 -1
+     */
+    long indexOf(long[] s, int off) {
+        long h = StateCodec.hash(s, off, words);
+        int seg = directory[bucket(h)];
+        int slot = probe(seg, h, s, off);
+        return buffers[seg].get(bases[seg] + slot * slotBytes) == 0 ? -1 : (long) seg * SEGMENT_SLOTS + slot;
+    }
+
+    /**
+     * 若状态不存在则插入
+     * @param back 回退走法编码（不超过 0xFD），起点为 {@link #ROOT}
+     * @return 新状态的槽号；状态已存在时返回 -1
+     */
+    long add(long[] s, int off, int back) {
+        long h = StateCodec.hash(s, off, words);
+        int seg = directory[bucket(h)];
+        int slot = probe(seg, h, s, off);
+        if (buffers[seg].get(bases[seg] + slot * slotBytes) != 0) return -1;
+        if (counts[seg] + 1 > SEGMENT_LIMIT) {
+            grow();
+            seg = directory[bucket(h)];
+            slot = probe(seg, h, s, off);
+        }
+        write(buffers[seg], bases[seg] + slot * slotBytes, s, off, back + 1);
+        counts[seg]++;
+        size++;
+        return (long) seg * SEGMENT_SLOTS + slot;
+    }
+
+    /**
+     * 槽中状态的回退走法
+     * @return 走法编码，起点为 {@link #ROOT}，空槽为 -1
+     */
+    int back(long pos) {
+        int seg = (int) (pos / SEGMENT_SLOTS);
+        return (buffers[seg].get(bases[seg] + (int) (pos % SEGMENT_SLOTS) * slotBytes) & 0xFF) - 1;
+    }
+
+    // 哈希高 dirBits 位选目录项；段内起始槽取低位，两者互不相关
+    private int bucket(long h) {
+        return (int) (h >>> (64 - dirBits));
+    }
+
+    // 段内线性探测：返回状态所在槽，不存在时返回探测到的第一个空槽
+    private int probe(int seg, long h, long[] s, int off) {
+        ByteBuffer buf = buffers[seg];
+        int base = bases[seg];
+        int slot = (int) h & (SEGMENT_SLOTS - 1);
+        while (true) {
+            int at = base + slot * slotBytes;
+            if (buf.get(at) == 0 || matches(buf, at, s, off)) return slot;
+            slot = (slot + 1) & (SEGMENT_SLOTS - 1);
+        }
+    }
+
+    private boolean matches(ByteBuffer buf, int at, long[] s, int off) {
+        for (int w = 0; w < words; w++) {
+            if ((buf.getLong(at + offsets[w]) & masks[w]) != s[off + w]) return false;
+        }
+        return true;
+    }
+
+    // 按 long 读改写：只替换该字所占的低位字节，不影响紧随其后的字节
+    private void write(ByteBuffer buf, int at, long[] s, int off, int tag) {
+        buf.put(at, (byte) tag);
+        for (int w = 0; w < words; w++) {
+            int p = at + offsets[w];
+            buf.putLong(p, buf.getLong(p) & ~masks[w] | s[off + w]);
+        }
+    }
+
+    // 新增 m 个段，尽量放在同一块直接缓冲区中
+    private void addSegments(int m) {
+        int need = segmentCount + m;
+        if (need > buffers.length) {
+            int cap = Math.max(need, buffers.length * 2);
+            buffers = Arrays.copyOf(buffers, cap);
+            bases = Arrays.copyOf(bases, cap);
+            counts = Arrays.copyOf(counts, cap);
+            owned = Arrays.copyOf(owned, cap);
+        }
+        int segmentBytes = SEGMENT_SLOTS * slotBytes;
+        int perBuffer = (MAX_BUFFER_BYTES - Long.BYTES) / segmentBytes;
+        while (m > 0) {
+            int k = Math.min(m, perBuffer);
+            ByteBuffer buf = ByteBuffer.allocateDirect(k * segmentBytes + Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            allocated += buf.capacity();
+            for (int i = 0; i < k; i++) {
+                buffers[segmentCount] = buf;
+                bases[segmentCount++] = i * segmentBytes;
+            }
+            m -= k;
+        }
+    }
+
+    // 新增约 1/8 的段，把目录项从旧段均匀迁入新段，再重建全部旧段
+    private void grow() {
+        int n = segmentCount, m = Math.max(1, n / 8);
+        while ((long) directory.length < (long) BUCKETS_PER_SEGMENT * (n + m)) {
+            if (dirBits == 30) throw new IllegalStateException("堆外状态表目录超过 2^30 项");
+            // 目录加倍：每项拆成两个子项，仍指向原段，不移动任何状态
+            int[] doubled = new int[directory.length * 2];
+            for (int i = 0; i < doubled.length; i++) doubled[i] = directory[i >>> 1];
+            directory = doubled;
+            dirBits++;
+            for (int k = 0; k < n; k++) owned[k] *= 2;
+        }
+        addSegments(m);
+        // 每段应得 target 项，前 extra 段多 1 项；超额段的目录项依次交给不足的段
+        int total = n + m, target = directory.length / total, extra = directory.length % total;
+        int j = 0;
+        for (int i = 0; i < directory.length; i++) {
+            int seg = directory[i];
+            if (owned[seg] <= target + (seg < extra ? 1 : 0)) continue;
+            while (owned[j] >= target + (j < extra ? 1 : 0)) j++;
+            owned[seg]--;
+            directory[i] = j;
+            owned[j]++;
+        }
+        for (int seg = 0; seg < n; seg++) rebuild(seg);
+    }
+
+    /**
+     * 原地重建一个段：先把目录已改指其他段的状态移走，再从一个原本就空的槽之后依次检查余下的状态，
+     * 从起始槽探测能更早落位的就前移，恢复线性探测“起始槽到所在槽之间无空槽”的不变式。
+     * 原本的空槽不在任何状态的探测区间内，以它为起点时前移不会跨过尚未处理的槽。
+     */
+    private void rebuild(int seg) {
+        ByteBuffer buf = buffers[seg];
+        int base = bases[seg];
+        int empty = -1;
+        for (int slot = 0; slot < SEGMENT_SLOTS; slot++) {
+            int at = base + slot * slotBytes;
+            int tag = buf.get(at) & 0xFF;
+            if (tag == 0) {
+                empty = slot;
+                continue;
+            }
+            long h = readKey(buf, at);
+            int to = directory[bucket(h)];
+            if (to == seg) continue;
+            write(buffers[to], bases[to] + probe(to, h, key, 0) * slotBytes, key, 0, tag);
+            counts[to]++;
+            counts[seg]--;
+            buf.put(at, (byte) 0);
+            removed[slot >>> 6] |= 1L << slot;
+        }
+        // 簇中第一个移走的槽之前的状态探测区间完好，无需检查
+        boolean hole = false;
+        for (int k = 1; k <= SEGMENT_SLOTS; k++) {
+            int slot = (empty + k) & (SEGMENT_SLOTS - 1);
+            int at = base + slot * slotBytes;
+            int tag = buf.get(at) & 0xFF;
+            if (tag == 0) {
+                hole = (removed[slot >>> 6] & 1L << slot) != 0;
+                continue;
+            }
+            if (!hole) continue;
+            int to = probe(seg, readKey(buf, at), key, 0);
+            if (to == slot) continue;
+            write(buf, base + to * slotBytes, key, 0, tag);
+            buf.put(at, (byte) 0);
+        }
+        Arrays.fill(removed, 0);
+    }
+
+    // 读出槽中的状态到 key，返回其哈希
+    private long readKey(ByteBuffer buf, int at) {
+        for (int w = 0; w < words; w++) key[w] = buf.getLong(at + offsets[w]) & masks[w];
+        return StateCodec.hash(key, 0, words);
+    }
+}
@@ -0,0 +1,163 @@
+package solver;
+
+import model.Board;
+import model.GameMap;
+import util.Config;
+import util.Log;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * 地图标准步数表（使用枚举实现单例）：以地图 MD5 为键记录初始布局的最少步数，
+ * 供限步、限时模式由最优解推导限制，而不依赖地图文件首行手工填写的数值。
+ * <p>每个地图版本（MD5）只求解一次，结果追加写入 {@link #FILE}，每行 {@code MD5 最少步数}，
+ * 无解记为 -1，超出求解规模记为 -2；之后的查询只查内存表。余量由配置项 parSlackPercent、parSecondsPerMove 指定，
+ * 在应用时计算，修改余量无需重新求解。</p>
+ * <p>界面线程开局前先用 {@link #recorded(GameMap)} 查内存表，已记录时直接 {@link #apply(GameMap, int)}；
+ * 否则通过 {@link #optimalAsync(GameMap)} 在后台求解，避免首次求解时阻塞 EDT。
+ * 后台结果到达时对局已经开始，只应用于之后的对局，不应改变进行中对局的限制。</p>
+ */
+public class ParTable {
+    /** 默认步数余量（最少步数的百分比） */
+    public static final int DEFAULT_SLACK_PERCENT = 30;
+    /** 默认每步可用秒数 */
+    public static final int DEFAULT_SECONDS_PER_MOVE = 3;
+
+    /** 超出求解规模的记录值，同样只尝试一次 */
+    private static final int ABORTED = -2;
+
+    private static final Path FILE = Paths.get("solutions", "par.txt");
+    /** 后台求解线程（守护线程，不阻止程序退出） */
+    private static final Executor EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "par");
+        t.setDaemon(true);
+        return t;
+    });
+    private final Log log = Log.getInstance();
+
+    /** MD5 -> 最少步数；求解在 optimal 的锁内进行，内存表可不经该锁读取 */
+    private final Map<String, Integer> optimal = new ConcurrentHashMap<>();
+    private final int slackPercent;
+    private final int secondsPerMove;
+
+    /**
+     * 私有构造方法（仅允许枚举单例调用），读取配置与磁盘记录
+     */
+    private ParTable() {
+        Config config = Config.getInstance();
+        int slack = config.getInt("parSlackPercent");
+        int seconds = config.getInt("parSecondsPerMove");
+        this.slackPercent = slack > 0 ? slack : DEFAULT_SLACK_PERCENT;
+        this.secondsPerMove = seconds > 0 ? seconds : DEFAULT_SECONDS_PER_MOVE;
+        readDisk();
+    }
+
+    /**
+     * 枚举单例（全局唯一）
+     */
+    private enum Singleton {
+        INSTANCE;
+
+        private final ParTable tableInstance = new ParTable();
+
+        private ParTable getInstance() {
+            return tableInstance;
+        }
+    }
+
+    /**
+     * 获取单例实例
+     */
+    public static ParTable getInstance() {
+        return Singleton.INSTANCE.getInstance();
+    }
+
+    /**
+     * 查询地图初始布局的最少步数，未记录时求解一次并写入磁盘（首次调用可能阻塞数秒，勿在 EDT 上调用）
+     * @return 最少步数；无解、无法计算 MD5 或超出求解规模时返回 -1
+     */
+    public synchronized int optimal(GameMap map) {
+        String md5 = map.getMd5();
+        if (md5 == null) return -1;
+        Integer known = optimal.get(md5);
+        if (known == null) {
+            // 按地图文件重新读取初始布局：传入的地图可能正被游戏中的棋盘移动
+            Board board = new Board(new GameMap(map.getName()));
+            Solution solution = SolutionCache.getInstance().solve(map, board, new BfsSolver());
+            if (solution.stats().extras().containsKey("aborted")) {
+                log.warn("地图 " + map.getName() + " 超出求解规模，沿用文件中的限制");
+                known = ABORTED;
+            } else {
+                known = solution.length();
+            }
+            optimal.put(md5, known);
+            appendDisk(md5, known);
+        }
+        return Math.max(known, -1);
+    }
+
+    /**
+     * 只查内存表，不求解也不等待进行中的求解，可在 EDT 上调用
+     * @return 已记录的最少步数（无解、无法求解时为 -1）；尚未求解或无法计算 MD5 时为 null
+     */
+    public Integer recorded(GameMap map) {
+        String md5 = map.getMd5();
+        Integer known = md5 == null ? null : optimal.get(md5);
+        return known == null ? null : Math.max(known, -1);
+    }
+
+    /**
+     * 在后台线程上查询最少步数，不阻塞调用线程；已记录的地图也经后台线程返回
+     * @return 以 {@link #optimal(GameMap)} 的结果完成的 future
+     */
+    public CompletableFuture<Integer> optimalAsync(GameMap map) {
+        return CompletableFuture.supplyAsync(() -> optimal(map), EXECUTOR);
+    }
+
+    /**
+     * 按最少步数与配置的余量推导地图的步数与时间限制
+     * @param length {@link #optimal(GameMap)} 或 {@link #optimalAsync(GameMap)} 得到的最少步数
+     * @return 是否已推导；无解或无法求解时保留地图文件中的限制并返回 false
+     */
+    public boolean apply(GameMap map, int length) {
+        if (length < 0) return false;
+        map.deriveLimits(length, slackPercent, secondsPerMove);
+        return true;
+    }
+
+    private void readDisk() {
+        if (!Files.exists(FILE)) return;
+        try {
+            for (String line : Files.readAllLines(FILE, StandardCharsets.UTF_8)) {
+                String[] parts = line.trim().split(" ");
+                if (parts.length == 2) optimal.put(parts[0], Integer.parseInt(parts[1]));
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("读取标准步数表失败：" + FILE + "，" + e.getMessage());
+        }
+    }
+
+    private void appendDisk(String md5, int length) {
+        try {
+            Files.createDirectories(FILE.getParent());
+            try (BufferedWriter w = Files.newBufferedWriter(FILE, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                w.write(md5 + " " + length);
+                w.newLine();
+            }
+        } catch (IOException e) {
+            log.warn("写入标准步数表失败：" + FILE + "，" + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package solver;
+
+import model.Board;
+import util.Config;
+import util.Log;
+
+import java.io.Serial;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 按层同步的并行广度优先求解器。
+ * <p>每一层的前沿被切分为若干段交给 ForkJoinPool 并行扩展，新状态写入分段加锁的共享去重表；
+ * 层结束后按 origin（父状态序号、走法）排序得到下一层前沿，使前沿顺序、父指针与最终解
+ * 都与 {@link BfsSolver} 完全一致。</p>
+ * <p>线程数读取配置项 {@code solverThreads}，未配置或不大于 0 时使用全部可用处理器。</p>
+ */
+public class ParallelBfsSolver implements Solver {
+    /** 单个叶子任务负责的前沿状态数 */
+    private static final int CHUNK = 1024;
+
+    private final Log log = Log.getInstance();
+    private final int threads;
+    private final int maxStates;
+
+    /**
+     * 使用配置项 solverThreads 指定的线程数
+     */
+    public ParallelBfsSolver() {
+        this(configuredThreads(), BfsSolver.DEFAULT_MAX_STATES);
+    }
+
+    /**
+     * @param threads   并行线程数
+     * @param maxStates 最多存储的状态数，超出后视为无解并在统计中标记 aborted
+     */
+    public ParallelBfsSolver(int threads, int maxStates) {
+        this.threads = Math.max(1, threads);
+        this.maxStates = maxStates;
+    }
+
+    /**
+     * 读取配置中的求解线程数
+     * @return 配置值；未配置或不大于 0 时返回可用处理器数
+     */
+    public static int configuredThreads() {
+        int n = Config.getInstance().getInt("solverThreads");
+        return n > 0 ? n : Runtime.getRuntime().availableProcessors();
+    }
+
+    @Override
+    public Solution solve(Board board) {
+        long begin = System.nanoTime();
+        Puzzle puzzle = new Puzzle(board);
+        int words = puzzle.getWords();
+        ConcurrentStateTable table = new ConcurrentStateTable(words);
+
+        long[] start = puzzle.encode(board);
+        long[] frontier = start.clone();
+        puzzle.canonicalize(frontier, 0);
+        int[] refs = {table.add(frontier, 0, -1L)};
+        int goal = puzzle.isGoal(frontier, 0) ? refs[0] : -1;
+        long expanded = 0;
+        boolean aborted = false;
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            while (goal < 0 && refs.length > 0) {
+                if (table.size() > maxStates) {
+                    aborted = true;
+                    break;
+                }
+                // 并行扩展当前层
+                table.mark();
+                ConcurrentLinkedQueue<int[]> found = new ConcurrentLinkedQueue<>();
+                pool.invoke(new Expand(puzzle, table, frontier, 0, refs.length, found));
+                expanded += refs.length;
+
+                // 按 origin 排序，恢复单线程 BFS 的发现顺序
+                int total = 0;
+                for (int[] part : found) total += part[0];
+                long[] origins = new long[total];
+                int n = 0;
+                for (int[] part : found) {
+                    for (int k = 1; k <= part[0]; k++) origins[n++] = table.origin(part[k]);
+                }
+                Arrays.parallelSort(origins);
+
+                long[] nextFrontier = new long[total * words];
+                int[] nextRefs = new int[total];
+                pool.invoke(new Link(puzzle, table, frontier, refs, origins, nextFrontier, nextRefs, 0, total));
+                frontier = nextFrontier;
+                refs = nextRefs;
+                for (int j = 0; j < total; j++) {
+                    if (puzzle.isGoal(frontier, j * words)) {
+                        goal = refs[j];
+                        break;
+                    }
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        Solution.Stats stats = new Solution.Stats(expanded, table.size(),
+                table.bytes() + (long) frontier.length * 8 + (long) refs.length * 4, System.nanoTime() - begin);
+        stats.extras().put("threads", threads);
+        if (aborted) stats.extras().put("aborted", 1);
+        if (puzzle.getSymmetry() == Puzzle.Symmetry.MIRROR) stats.extras().put("mirror", 1);
+        if (goal < 0) {
+            log.info("并行 BFS 无解：" + stats);
+            return new Solution(false, List.of(), stats);
+        }
+        List<Board.MoveEntry> moves = path(puzzle, table, start, goal);
+        log.info("并行 BFS 求得 " + moves.size() + " 步最优解：" + stats);
+        return new Solution(true, moves, stats);
+    }
+
+    /**
+     * 沿父引用回溯到起点，再把规范状态上的走法映射回真实方块 ID
+     */
+    private static List<Board.MoveEntry> path(Puzzle puzzle, ConcurrentStateTable table, long[] start, int ref) {
+        int words = puzzle.getWords();
+        int depth = 0;
+        for (int r = ref; table.parent(r) >= 0; r = table.parent(r)) depth++;
+        long[] parents = new long[depth * words];
+        int[] moves = new int[depth];
+        for (int r = ref, k = depth - 1; k >= 0; r = table.parent(r), k--) {
+            table.copyKey(table.parent(r), parents, k * words);
+            moves[k] = (int) (table.origin(r) & 0xFFFF);
+        }
+        return puzzle.realize(start, parents, moves);
+    }
+
+    /**
+     * 扩展前沿 [lo, hi) 的任务；叶子任务把新插入状态的引用以 {数量, 引用...} 的形式放入 found
+     */
+    private static final class Expand extends RecursiveAction {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final Puzzle puzzle;
+        private final ConcurrentStateTable table;
+        private final long[] frontier;
+        private final int lo, hi;
+        private final ConcurrentLinkedQueue<int[]> found;
+
+        Expand(Puzzle puzzle, ConcurrentStateTable table, long[] frontier, int lo, int hi,
+               ConcurrentLinkedQueue<int[]> found) {
+            this.puzzle = puzzle;
+            this.table = table;
+            this.frontier = frontier;
+            this.lo = lo;
+            this.hi = hi;
+            this.found = found;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo > CHUNK) {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new Expand(puzzle, table, frontier, lo, mid, found),
+                        new Expand(puzzle, table, frontier, mid, hi, found));
+                return;
+            }
+            int words = puzzle.getWords();
+            Puzzle.Cursor cursor = puzzle.cursor();
+            int[] buf = new int[puzzle.getBlockCount() * 4];
+            long[] next = new long[words];
+            int[] out = new int[1 + (hi - lo) * 4];
+            for (int pos = lo; pos < hi; pos++) {
+                cursor.load(frontier, pos * words);
+                int n = cursor.moves(buf);
+                for (int k = 0; k < n; k++) {
+                    puzzle.apply(frontier, pos * words, buf[k], next, 0);
+                    puzzle.canonicalize(next, 0);
+                    int ref = table.add(next, 0, ((long) pos << 16) | buf[k]);
+                    if (ref >= 0) {
+                        if (out[0] + 1 == out.length) out = Arrays.copyOf(out, out.length * 2);
+                        out[++out[0]] = ref;
+                    }
+                }
+            }
+            found.add(out);
+        }
+    }
+
+    /**
+     * 按排序后的 origin 生成下一层前沿，并为新状态写入父引用
+     */
+    private static final class Link extends RecursiveAction {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final Puzzle puzzle;
+        private final ConcurrentStateTable table;
+        private final long[] frontier;
+        private final int[] refs;
+        private final long[] origins;
+        private final long[] nextFrontier;
+        private final int[] nextRefs;
+        private final int lo, hi;
+
+        Link(Puzzle puzzle, ConcurrentStateTable table, long[] frontier, int[] refs, long[] origins,
+             long[] nextFrontier, int[] nextRefs, int lo, int hi) {
+            this.puzzle = puzzle;
+            this.table = table;
+            this.frontier = frontier;
+            this.refs = refs;
+            this.origins = origins;
+            this.nextFrontier = nextFrontier;
+            this.nextRefs = nextRefs;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo > CHUNK * 4) {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new Link(puzzle, table, frontier, refs, origins, nextFrontier, nextRefs, lo, mid),
+                        new Link(puzzle, table, frontier, refs, origins, nextFrontier, nextRefs, mid, hi));
+                return;
+            }
+            int words = puzzle.getWords();
+            for (int j = lo; j < hi; j++) {
+                int pos = (int) (origins[j] >>> 16);
+                int move = (int) (origins[j] & 0xFFFF);
+                puzzle.apply(frontier, pos * words, move, nextFrontier, j * words);
+                puzzle.canonicalize(nextFrontier, j * words);
+                int ref = table.indexOf(nextFrontier, j * words);
+                table.setParent(ref, refs[pos]);
+                nextRefs[j] = ref;
+            }
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package solver;
+
+import model.Block;
+import model.StateCodec;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 按地图预计算的加性模式数据库。
+ * <p>除 LARGE 外的方块按类型划分为若干互不相交的模式组（同类型方块总在同一组，各类型按面积从大到小装组），
+ * 每组与 LARGE 一起构成一个抽象问题（其余方块视为不存在），从全部抽象胜利状态出发做 0-1 BFS 得到各抽象状态的距离：</p>
+ * <ul>
+ *     <li>主组计入组内所有方块（含 LARGE）的移动；</li>
+ *     <li>其余各组只计入本组方块的移动，LARGE 的移动代价为 0。</li>
+ * </ul>
+ * <p>规范化只在同类型方块之间交换下标，组又总是包含某类型的全部方块，所以一步真实走法只改变
+ * 被移动方块所在组（与 LARGE 所在的各组）的抽象状态，且只被一个组计数；去掉其他方块只会放宽约束，
+ * 因此各组距离之和仍是可采纳下界，最终再与曼哈顿距离取最大值。若按下标而非类型分组，
+ * 一步走法可能让物理方块从一组的字段换到另一组，多个组同时变化，和就不再可采纳。</p>
+ * <p>抽象状态数超过预算时该组提前停止：已出队的状态距离精确，其余状态（含未见过的）
+ * 统一按停止时的距离下界计算，仍保证可采纳。</p>
+ */
+final class PatternDatabase implements Heuristic {
+    private final LargeDistanceHeuristic fallback;
+    private final Group[] groups;
+    private long lookups;
+    private long hits;
+
+    private PatternDatabase(LargeDistanceHeuristic fallback, Group[] groups) {
+        this.fallback = fallback;
+        this.groups = groups;
+    }
+
+    /**
+     * 为给定地图构建模式数据库
+     * @param puzzle 完整描述
+     * @param budget 每组最多存储的抽象状态数
+     */
+    static PatternDatabase build(Puzzle puzzle, int budget) {
+        LargeDistanceHeuristic fallback = new LargeDistanceHeuristic(puzzle);
+        int large = puzzle.getLarge();
+        if (large < 0) return new PatternDatabase(fallback, new Group[0]);
+
+        // 规范状态中同类型方块按位置排序，一步移动可能让同类方块交换下标，因此按类型整体分组：
+        // 各类型按面积降序，放得下就并入当前组，否则另起一组（单个类型超过组大小时仍整体成组）
+        List<List<Integer>> kinds = new ArrayList<>();
+        for (Block.Type t : Block.Type.values()) {
+            List<Integer> members = new ArrayList<>();
+            for (int i = 0; i < puzzle.getBlockCount(); i++) {
+                if (i != large && puzzle.getType(i) == t) members.add(i);
+            }
+            if (!members.isEmpty()) kinds.add(members);
+        }
+        kinds.sort((a, b) -> area(puzzle, b.get(0)) - area(puzzle, a.get(0)));
+
+        // 每组方块数：使 (格子数)^(组大小 + 1) 不超过预算
+        int cells = puzzle.getRows() * puzzle.getCols();
+        int size = 1;
+        while (Math.pow(cells, size + 2) <= budget) size++;
+
+        List<List<Integer>> parts = new ArrayList<>();
+        for (List<Integer> kind : kinds) {
+            List<Integer> last = parts.isEmpty() ? null : parts.get(parts.size() - 1);
+            if (last != null && last.size() + kind.size() <= size) last.addAll(kind);
+            else parts.add(new ArrayList<>(kind));
+        }
+
+        List<Group> groups = new ArrayList<>();
+        for (List<Integer> members : parts) {
+            int[] subset = new int[members.size() + 1];
+            subset[0] = large;
+            for (int k = 0; k < members.size(); k++) subset[k + 1] = members.get(k);
+            Arrays.sort(subset);
+            groups.add(new Group(puzzle, subset, !groups.isEmpty(), budget));
+        }
+        return new PatternDatabase(fallback, groups.toArray(new Group[0]));
+    }
+
+    private static int area(Puzzle puzzle, int i) {
+        return puzzle.getWidth(i) * puzzle.getHeight(i);
+    }
+
+    @Override
+    public int estimate(long[] s, int off) {
+        int sum = 0;
+        for (Group g : groups) {
+            lookups++;
+            int d = g.lookup(s, off);
+            if (d >= 0) {
+                hits++;
+                sum += d;
+            } else {
+                sum += g.floor;
+            }
+        }
+        return Math.max(Math.min(sum, INFINITE), fallback.estimate(s, off));
+    }
+
+    @Override
+    public long lookups() { return lookups; }
+
+    @Override
+    public long hits() { return hits; }
+
+    /** 所有模式组表占用的字节数 */
+    long bytes() {
+        long n = 0;
+        for (Group g : groups) n += g.table.bytes() + g.dist.length;
+        return n;
+    }
+
+    /**
+     * 单个模式组：抽象描述、抽象状态表与距离
+     */
+    private static final class Group {
+        private final Puzzle sub;
+        private final int[] subset;
+        private final StateTable table;
+        /** 抽象状态距离（无符号字节，超过 255 的按 255 截断，仍为下界） */
+        private byte[] dist;
+        /** 查不到的抽象状态使用的下界：完整构建时为不可达，提前停止时为停止时的距离 */
+        private final int floor;
+        private final long[] scratch;
+        private final StateCodec full;
+
+        Group(Puzzle puzzle, int[] subset, boolean largeFree, int budget) {
+            this.sub = new Puzzle(puzzle, subset);
+            this.subset = subset;
+            int words = sub.getWords();
+            this.table = new StateTable(words, 1 << 10);
+            this.dist = new byte[1 << 10];
+            this.scratch = new long[words];
+            this.full = puzzle.getCodec();
+
+            // 0-1 BFS：代价 0 的走法放队首，代价 1 的放队尾
+            int goals = sub.goalStates(s -> table.add(s, 0, -1, -1), budget);
+            int[] deque = new int[Integer.highestOneBit(Math.max(16, table.size())) << 1];
+            int head = 0, tail = 0;
+            for (int i = 0; i < table.size(); i++) deque[tail++] = i;
+            boolean[] done = new boolean[Math.max(16, table.size())];
+            int[] exact = new int[Math.max(16, table.size())];
+
+            Puzzle.Cursor cursor = sub.cursor();
+            int[] buf = new int[sub.getBlockCount() * 4];
+            long[] next = new long[words];
+            int current = 0;
+            // 胜利状态都没能枚举完整时，只能把整组视为距离下界 0
+            boolean complete = goals < budget;
+            while (complete && head != tail) {
+                int i = deque[head];
+                head = (head + 1) % deque.length;
+                if (done[i]) continue;
+                done[i] = true;
+                current = exact[i];
+                if (table.size() > budget) {
+                    complete = false;
+                    break;
+                }
+                cursor.load(table.keys(), i * words);
+                int n = cursor.moves(buf);
+                for (int k = 0; k < n; k++) {
+                    int cost = largeFree && (buf[k] >>> 2) == sub.getLarge() ? 0 : 1;
+                    sub.apply(table.keys(), i * words, buf[k], next, 0);
+                    sub.canonicalize(next, 0);
+                    int j = table.indexOf(next, 0);
+                    if (j < 0) {
+                        j = table.add(next, 0, i, buf[k]);
+                        if (j >= done.length) {
+                            done = Arrays.copyOf(done, done.length * 2);
+                            exact = Arrays.copyOf(exact, exact.length * 2);
+                        }
+                        exact[j] = current + cost;
+                    } else if (done[j] || exact[j] <= current + cost) {
+                        continue;
+                    } else {
+                        exact[j] = current + cost;
+                    }
+                    // 环形双端队列：满时扩容并展开
+                    int used = (tail - head + deque.length) % deque.length;
+                    if (used + 1 >= deque.length) {
+                        int[] grown = new int[deque.length * 2];
+                        for (int q = 0; q < used; q++) grown[q] = deque[(head + q) % deque.length];
+                        deque = grown;
+                        head = 0;
+                        tail = used;
+                    }
+                    if (cost == 0) {
+                        head = (head - 1 + deque.length) % deque.length;
+                        deque[head] = j;
+                    } else {
+                        deque[tail] = j;
+                        tail = (tail + 1) % deque.length;
+                    }
+                }
+            }
+            ensure(table.size());
+            for (int i = 0; i < table.size(); i++) {
+                int d = done[i] ? exact[i] : Math.min(exact[i], current);
+                dist[i] = (byte) Math.min(d, 255);
+            }
+            this.floor = complete ? INFINITE : current;
+        }
+
+        private void ensure(int n) {
+            if (dist.length < n) dist = Arrays.copyOf(dist, Math.max(n, dist.length * 2));
+        }
+
+        /**
+         * 查询完整状态在本组抽象下的距离
+         * @return 距离；抽象状态不在表中时返回 -1
+         */
+        int lookup(long[] s, int off) {
+            for (int k = 0; k < subset.length; k++) {
+                sub.getCodec().set(scratch, 0, k, full.get(s, off, subset[k]));
+            }
+            sub.canonicalize(scratch, 0);
+            int i = table.indexOf(scratch, 0);
+            return i < 0 ? -1 : dist[i] & 0xFF;
+        }
+    }
+}
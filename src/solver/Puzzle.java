@@ -0,0 +1,524 @@
+package solver;
+
+import model.Block;
+import model.Board;
+import model.StateCodec;
+import util.Config;
+import util.Log;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 面向搜索的棋盘只读描述：
+ * 预先提取行列数、各方块尺寸与胜利判定所需信息，并基于 StateCodec 在压缩状态上
+ * 完成走法生成、走法应用与胜利判定，搜索过程中不再创建 Board/Block 对象。
+ * <p>走法统一编码为 int：{@code (方块下标 << 2) | 方向序号}，方向序号即 Block.Direction 的 ordinal。</p>
+ * <p>同类型方块在玩法上完全等价，搜索时通过 {@link #canonicalize} 将它们的位置按升序重排，
+ * 使仅互换同类方块的状态共用同一个键；回溯路径时再按单元格映射回真实方块 ID。</p>
+ * <p>胜利区左右对称时还可把左右镜像的两个布局合并为一个键（取两者规范编码中较小者），
+ * 回溯时逐步判断规范状态相对真实状态是否被镜像，并相应翻转走法。</p>
+ */
+public final class Puzzle {
+    /**
+     * 状态归并方式
+     * <ul>
+     *     <li>NONE：按方块 ID 精确区分；</li>
+     *     <li>PIECES：同类型方块互换视为同一状态；</li>
+     *     <li>MIRROR：在 PIECES 基础上再合并左右镜像（胜利区不对称时退化为 PIECES）。</li>
+     * </ul>
+     */
+    public enum Symmetry { NONE, PIECES, MIRROR }
+
+    /** 方向对应的行偏移（与 Block.Direction 顺序一致：UP, DOWN, LEFT, RIGHT） */
+    static final int[] DR = {-1, 1, 0, 0};
+    /** 方向对应的列偏移 */
+    static final int[] DC = {0, 0, -1, 1};
+    /** 所有方向 */
+    static final Block.Direction[] DIRS = Block.Direction.values();
+
+    private final int rows;
+    private final int cols;
+    private final int count;
+    private final int[] ids;
+    private final int[] widths;
+    private final int[] heights;
+    private final Block.Type[] types;
+    /** 首个 LARGE 方块的下标（与 Board.isVictory 一致），不存在时为 -1 */
+    private final int large;
+    /** goalHead[cell] 为 true 表示 LARGE 方块左上角位于该格时满足胜利条件 */
+    private final boolean[] goalHead;
+    /** 同类型方块分组（仅保留成员数大于 1 的组），组内下标升序 */
+    private final int[][] groups;
+    private final StateCodec codec;
+    private final int words;
+    /** 实际生效的归并方式 */
+    private final Symmetry symmetry;
+    /** 镜像比较用的工作缓冲区，每个线程一份 */
+    private final ThreadLocal<long[]> scratch;
+
+    /**
+     * 按配置项 solverSymmetry 选择归并方式构造搜索描述
+     * @param board 参考棋盘，仅读取方块尺寸与胜利区
+     */
+    public Puzzle(Board board) {
+        this(board, configuredSymmetry());
+    }
+
+    /**
+     * 根据棋盘的几何信息与胜利区构造搜索描述
+     * @param board    参考棋盘，仅读取方块尺寸与胜利区
+     * @param symmetry 状态归并方式
+     */
+    public Puzzle(Board board, Symmetry symmetry) {
+        this.rows = board.getRows();
+        this.cols = board.getCols();
+        List<Block> blocks = board.getBlocks();
+        this.count = blocks.size();
+        this.ids = new int[count];
+        this.widths = new int[count];
+        this.heights = new int[count];
+        this.types = new Block.Type[count];
+        int largeIdx = -1;
+        for (int i = 0; i < count; i++) {
+            Block b = blocks.get(i);
+            ids[i] = b.getId();
+            types[i] = b.getType();
+            widths[i] = b.getWidth();
+            heights[i] = b.getHeight();
+            if (largeIdx < 0 && b.getType() == Block.Type.LARGE) largeIdx = i;
+        }
+        this.large = largeIdx;
+        this.groups = symmetry == Symmetry.NONE ? new int[0][] : buildGroups();
+        this.codec = new StateCodec(rows, cols, count);
+        this.words = codec.getWords();
+        this.scratch = ThreadLocal.withInitial(() -> new long[words]);
+
+        // 预计算 LARGE 方块所有满足胜利条件的左上角位置
+        boolean[] victory = new boolean[rows * cols];
+        for (Point p : board.getVictoryCells()) victory[p.x * cols + p.y] = true;
+        this.goalHead = new boolean[rows * cols];
+        if (large >= 0) {
+            for (int r = 0; r + heights[large] <= rows; r++) {
+                for (int c = 0; c + widths[large] <= cols; c++) {
+                    boolean ok = true;
+                    for (int dr = 0; dr < heights[large] && ok; dr++) {
+                        for (int dc = 0; dc < widths[large] && ok; dc++) {
+                            ok = victory[(r + dr) * cols + c + dc];
+                        }
+                    }
+                    goalHead[r * cols + c] = ok;
+                }
+            }
+        }
+        if (symmetry == Symmetry.MIRROR && !goalSymmetric()) {
+            Log.getInstance().info("胜利区左右不对称，镜像归并已关闭");
+            symmetry = Symmetry.PIECES;
+        }
+        this.symmetry = symmetry;
+    }
+
+    /**
+     * 读取配置项 solverSymmetry（NONE / PIECES / MIRROR），缺省或无法识别时为 PIECES
+     */
+    public static Symmetry configuredSymmetry() {
+        String value = Config.getInstance().getString("solverSymmetry");
+        if (value != null) {
+            for (Symmetry s : Symmetry.values()) {
+                if (s.name().equalsIgnoreCase(value)) return s;
+            }
+        }
+        return Symmetry.PIECES;
+    }
+
+    // LARGE 方块的胜利位置集合在左右镜像下是否不变
+    private boolean goalSymmetric() {
+        if (large < 0) return false;
+        for (int cell = 0; cell < rows * cols; cell++) {
+            if (cell % cols + widths[large] > cols) continue;
+            if (goalHead[cell] != goalHead[mirrorCell(cell, widths[large])]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * 构造只包含部分方块的抽象描述（用于模式数据库），行列数与胜利条件保持不变
+     * @param parent 完整描述
+     * @param subset 保留的方块下标，须包含 LARGE 方块
+     */
+    Puzzle(Puzzle parent, int[] subset) {
+        this.rows = parent.rows;
+        this.cols = parent.cols;
+        this.count = subset.length;
+        this.ids = new int[count];
+        this.widths = new int[count];
+        this.heights = new int[count];
+        this.types = new Block.Type[count];
+        int largeIdx = -1;
+        for (int k = 0; k < count; k++) {
+            int i = subset[k];
+            ids[k] = parent.ids[i];
+            types[k] = parent.types[i];
+            widths[k] = parent.widths[i];
+            heights[k] = parent.heights[i];
+            if (i == parent.large) largeIdx = k;
+        }
+        this.large = largeIdx;
+        this.symmetry = parent.symmetry;
+        this.groups = symmetry == Symmetry.NONE ? new int[0][] : buildGroups();
+        this.codec = new StateCodec(rows, cols, count);
+        this.words = codec.getWords();
+        this.scratch = ThreadLocal.withInitial(() -> new long[words]);
+        this.goalHead = parent.goalHead;
+    }
+
+    // 按类型收集可互换的方块下标
+    private int[][] buildGroups() {
+        List<int[]> list = new ArrayList<>();
+        for (Block.Type t : Block.Type.values()) {
+            int[] members = new int[count];
+            int n = 0;
+            for (int i = 0; i < count; i++) {
+                if (types[i] == t) members[n++] = i;
+            }
+            if (n > 1) list.add(Arrays.copyOf(members, n));
+        }
+        return list.toArray(new int[0][]);
+    }
+
+    public int getRows() { return rows; }
+    public int getCols() { return cols; }
+    /** 方块数量 */
+    public int getBlockCount() { return count; }
+    /** 单个压缩状态占用的 long 数 */
+    public int getWords() { return words; }
+    public StateCodec getCodec() { return codec; }
+    public int getWidth(int i) { return widths[i]; }
+    public int getHeight(int i) { return heights[i]; }
+    public Block.Type getType(int i) { return types[i]; }
+    /** 方块下标对应的方块 ID */
+    public int getId(int i) { return ids[i]; }
+    /** LARGE 方块下标，不存在时为 -1 */
+    public int getLarge() { return large; }
+    /** 实际生效的状态归并方式 */
+    public Symmetry getSymmetry() { return symmetry; }
+
+    /**
+     * LARGE 方块左上角位于 cell 时是否满足胜利条件
+     */
+    public boolean isGoalHead(int cell) {
+        return cell >= 0 && cell < goalHead.length && goalHead[cell];
+    }
+
+    /**
+     * 判断压缩状态是否为胜利状态
+     */
+    public boolean isGoal(long[] s, int off) {
+        return large >= 0 && goalHead[codec.get(s, off, large)];
+    }
+
+    /**
+     * 将棋盘当前状态编码为压缩状态
+     */
+    public long[] encode(Board board) {
+        return codec.encode(board);
+    }
+
+    /**
+     * 在 src 状态上应用走法，结果写入 dst（调用方需保证走法合法）
+     */
+    public void apply(long[] src, int srcOff, int move, long[] dst, int dstOff) {
+        System.arraycopy(src, srcOff, dst, dstOff, words);
+        int i = move >>> 2, d = move & 3;
+        int cell = codec.get(src, srcOff, i);
+        codec.set(dst, dstOff, i, cell + DR[d] * cols + DC[d]);
+    }
+
+    /**
+     * 将状态就地规范化：每组同类型方块的位置按单元格序号升序排列；
+     * 启用镜像归并时再与镜像布局的排序结果比较，保留编码较小者
+     */
+    public void canonicalize(long[] s, int off) {
+        sortGroups(s, off);
+        if (symmetry != Symmetry.MIRROR) return;
+        long[] m = mirror(s, off);
+        if (StateCodec.compare(m, 0, s, off, words) < 0) System.arraycopy(m, 0, s, off, words);
+    }
+
+    /**
+     * 判断规范状态是否由真实状态经镜像得到（对称布局视为未镜像）
+     */
+    public boolean isMirrored(long[] real, int realOff, long[] canonical, int canonicalOff) {
+        if (symmetry != Symmetry.MIRROR) return false;
+        long[] t = scratch.get();
+        System.arraycopy(real, realOff, t, 0, words);
+        sortGroups(t, 0);
+        return !StateCodec.equals(t, 0, canonical, canonicalOff, words);
+    }
+
+    // 把状态的左右镜像写入线程工作缓冲区并排序同类方块
+    private long[] mirror(long[] s, int off) {
+        long[] m = scratch.get();
+        for (int i = 0; i < count; i++) codec.set(m, 0, i, mirrorCell(codec.get(s, off, i), widths[i]));
+        sortGroups(m, 0);
+        return m;
+    }
+
+    /**
+     * 宽度为 w 的方块左上角在左右镜像后的单元格序号
+     */
+    int mirrorCell(int cell, int w) {
+        int r = cell / cols, c = cell % cols;
+        return r * cols + cols - w - c;
+    }
+
+    /**
+     * 方向在左右镜像后的方向：上下不变，左右互换
+     */
+    static int mirrorDir(int dir) {
+        return dir < 2 ? dir : dir ^ 1;
+    }
+
+    // 组内成员很少，直接在编码字段上做插入排序，避免分配临时数组
+    private void sortGroups(long[] s, int off) {
+        for (int[] g : groups) {
+            for (int k = 1; k < g.length; k++) {
+                int v = codec.get(s, off, g[k]), j = k - 1;
+                while (j >= 0 && codec.get(s, off, g[j]) > v) {
+                    codec.set(s, off, g[j + 1], codec.get(s, off, g[j]));
+                    j--;
+                }
+                codec.set(s, off, g[j + 1], v);
+            }
+        }
+    }
+
+    /**
+     * 将规范状态上的走法换算为真实状态上的走法：
+     * 规范状态与真实状态（或其镜像）的方块位置集合相同，按被移动方块的左上角单元格找到真实下标，
+     * 规范状态为镜像时同时翻转单元格与左右方向
+     * @param real      与规范状态等价的真实状态
+     * @param canonical 规范状态
+     * @param move      规范状态上的走法
+     * @return 真实状态上的走法
+     */
+    public int toRealMove(long[] real, int realOff, long[] canonical, int canonicalOff, int move) {
+        int i = move >>> 2, d = move & 3;
+        int cell = codec.get(canonical, canonicalOff, i);
+        if (isMirrored(real, realOff, canonical, canonicalOff)) {
+            cell = mirrorCell(cell, widths[i]);
+            d = mirrorDir(d);
+        }
+        if (codec.get(real, realOff, i) == cell) return (i << 2) | d;
+        for (int j = 0; j < count; j++) {
+            if (types[j] == types[i] && codec.get(real, realOff, j) == cell) return (j << 2) | d;
+        }
+        throw new IllegalStateException("规范状态与真实状态不一致");
+    }
+
+    /**
+     * 求走法的逆走法：child 由 parent 经 move 得到（并已规范化），返回在 child 上退回 parent 的走法
+     */
+    public int reverse(long[] parent, int parentOff, int move, long[] child, int childOff) {
+        int i = move >>> 2, d = move & 3;
+        int cell = codec.get(parent, parentOff, i) + DR[d] * cols + DC[d];
+        if (symmetry == Symmetry.MIRROR) {
+            // 子状态规范化时可能被镜像：比较未镜像的排序结果即可判断
+            long[] t = scratch.get();
+            apply(parent, parentOff, move, t, 0);
+            sortGroups(t, 0);
+            if (!StateCodec.equals(t, 0, child, childOff, words)) {
+                cell = mirrorCell(cell, widths[i]);
+                d = mirrorDir(d);
+            }
+        }
+        for (int j = 0; j < count; j++) {
+            if (types[j] == types[i] && codec.get(child, childOff, j) == cell) return (j << 2) | opposite(d);
+        }
+        throw new IllegalStateException("子状态与走法不一致");
+    }
+
+    /**
+     * 枚举所有满足胜利条件的规范状态：LARGE 方块位于胜利区，其余方块任意合法摆放，
+     * 同类型方块按下标顺序取递增的位置，镜像归并时只保留镜像对中的规范者，因此每种布局只产生一次
+     * @param sink  接收每个规范状态（回调期间数组内容有效，需自行复制）
+     * @param limit 最多枚举的状态数
+     * @return 实际枚举的状态数；达到上限时返回 limit
+     */
+    public int goalStates(Consumer<long[]> sink, int limit) {
+        if (large < 0) return 0;
+        int[] order = new int[count];
+        order[0] = large;
+        for (int i = 0, n = 1; i < count; i++) if (i != large) order[n++] = i;
+        // 同类型方块中排在前面的成员下标，用于保证位置递增
+        int[] prevSame = new int[count];
+        Arrays.fill(prevSame, -1);
+        for (int[] g : groups) {
+            for (int k = 1; k < g.length; k++) prevSame[g[k]] = g[k - 1];
+        }
+        int[] counter = {0};
+        placeGoals(order, 0, prevSame, new boolean[rows * cols], new int[count], new long[words], sink, limit, counter);
+        return counter[0];
+    }
+
+    // 回溯摆放 order[depth] 及之后的方块
+    private void placeGoals(int[] order, int depth, int[] prevSame, boolean[] used, int[] heads,
+                            long[] buf, Consumer<long[]> sink, int limit, int[] counter) {
+        if (counter[0] >= limit) return;
+        if (depth == count) {
+            for (int i = 0; i < count; i++) codec.set(buf, 0, i, heads[i]);
+            if (symmetry == Symmetry.MIRROR && StateCodec.compare(mirror(buf, 0), 0, buf, 0, words) < 0) return;
+            counter[0]++;
+            sink.accept(buf);
+            return;
+        }
+        int i = order[depth];
+        int w = widths[i], h = heights[i];
+        int from = prevSame[i] >= 0 ? heads[prevSame[i]] + 1 : 0;
+        for (int cell = from; cell < rows * cols; cell++) {
+            int r0 = cell / cols, c0 = cell % cols;
+            if (r0 + h > rows || c0 + w > cols) continue;
+            if (i == large && !goalHead[cell]) continue;
+            boolean free = true;
+            for (int r = r0; r < r0 + h && free; r++) {
+                for (int c = c0; c < c0 + w && free; c++) free = !used[r * cols + c];
+            }
+            if (!free) continue;
+            mark(used, r0, c0, w, h, true);
+            heads[i] = cell;
+            placeGoals(order, depth + 1, prevSame, used, heads, buf, sink, limit, counter);
+            mark(used, r0, c0, w, h, false);
+            if (counter[0] >= limit) return;
+        }
+    }
+
+    private void mark(boolean[] used, int r0, int c0, int w, int h, boolean v) {
+        for (int r = r0; r < r0 + h; r++) {
+            for (int c = c0; c < c0 + w; c++) used[r * cols + c] = v;
+        }
+    }
+
+    /**
+     * 把一条规范状态路径换算为真实方块 ID 的移动序列：从真实起点出发逐步重放
+     * @param start   未规范化的真实起始状态
+     * @param parents 路径上每一步之前的规范状态，按时间顺序平铺（第 k 步位于 k * words）
+     * @param moves   每一步在对应规范状态上的走法
+     * @return 按时间顺序排列的移动记录
+     */
+    public List<Board.MoveEntry> realize(long[] start, long[] parents, int[] moves) {
+        long[] real = start.clone();
+        long[] step = new long[words];
+        List<Board.MoveEntry> list = new ArrayList<>(moves.length);
+        for (int k = 0; k < moves.length; k++) {
+            int move = toRealMove(real, 0, parents, k * words, moves[k]);
+            list.add(toMoveEntry(move));
+            apply(real, 0, move, step, 0);
+            System.arraycopy(step, 0, real, 0, words);
+        }
+        return list;
+    }
+
+    /**
+     * 将走法编码转换为 Board 使用的移动记录
+     */
+    public Board.MoveEntry toMoveEntry(int move) {
+        return new Board.MoveEntry(ids[move >>> 2], DIRS[move & 3]);
+    }
+
+    /**
+     * 获取方向编码的反方向
+     */
+    static int opposite(int dir) {
+        return dir ^ 1;
+    }
+
+    /**
+     * 创建一个绑定到本描述的游标；游标持有解码后的工作缓冲区，非线程安全，每个线程各用一个
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * 解码游标：保存当前状态的方块位置与占用网格，用于无分配地生成合法走法
+     */
+    public final class Cursor {
+        /** 各方块左上角单元格序号 */
+        private final int[] heads = new int[count];
+        /** 占用网格：方块下标 + 1，0 表示空 */
+        private final int[] grid = new int[rows * cols];
+
+        private Cursor() { }
+
+        /**
+         * 解码压缩状态并重建占用网格
+         */
+        public void load(long[] s, int off) {
+            Arrays.fill(grid, 0);
+            for (int i = 0; i < count; i++) {
+                int cell = codec.get(s, off, i);
+                heads[i] = cell;
+                int r0 = cell / cols, c0 = cell % cols;
+                for (int r = r0; r < r0 + heights[i]; r++) {
+                    for (int c = c0; c < c0 + widths[i]; c++) {
+                        grid[r * cols + c] = i + 1;
+                    }
+                }
+            }
+        }
+
+        /**
+         * 当前状态下第 i 个方块的左上角单元格序号
+         */
+        public int head(int i) {
+            return heads[i];
+        }
+
+        /**
+         * 当前状态下单元格上的方块下标，空格返回 -1
+         */
+        public int blockAt(int cell) {
+            return grid[cell] - 1;
+        }
+
+        /**
+         * 判断第 i 个方块能否向方向 d 移动一格
+         */
+        public boolean canMove(int i, int d) {
+            int r0 = heads[i] / cols, c0 = heads[i] % cols;
+            int w = widths[i], h = heights[i];
+            // 只需检查移动方向上的前沿格子
+            int rs, re, cs, ce;
+            switch (d) {
+                case 0 -> { if (r0 == 0) return false; rs = re = r0 - 1; cs = c0; ce = c0 + w - 1; }
+                case 1 -> { if (r0 + h >= rows) return false; rs = re = r0 + h; cs = c0; ce = c0 + w - 1; }
+                case 2 -> { if (c0 == 0) return false; cs = ce = c0 - 1; rs = r0; re = r0 + h - 1; }
+                default -> { if (c0 + w >= cols) return false; cs = ce = c0 + w; rs = r0; re = r0 + h - 1; }
+            }
+            for (int r = rs; r <= re; r++) {
+                for (int c = cs; c <= ce; c++) {
+                    if (grid[r * cols + c] != 0) return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * 生成当前状态的全部合法走法，按方块下标、方向顺序写入 out
+         * @param out 输出缓冲区，长度至少为 4 * 方块数
+         * @return 合法走法数量
+         */
+        public int moves(int[] out) {
+            int n = 0;
+            for (int i = 0; i < count; i++) {
+                for (int d = 0; d < 4; d++) {
+                    if (canMove(i, d)) out[n++] = (i << 2) | d;
+                }
+            }
+            return n;
+        }
+    }
+}
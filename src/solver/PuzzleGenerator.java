@@ -0,0 +1,262 @@
+package solver;
+
+import model.Board;
+import model.GameMap;
+import model.StateCodec;
+import util.Log;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 随机谜题生成器：按目标最优步数区间生成新的地图文件。
+ * <p>每次尝试随机选择方块组合，把 LARGE 放在胜利区、其余方块随机摆放得到一个胜利布局，
+ * 枚举它所在的整个连通分量并从全部胜利状态逆向求距离，再取区间内的局部最远状态作为谜题起点。</p>
+ * <p>多个线程并行尝试，谜题按「方块组合 + 规范状态键」去重；输出文本经 GameMap 解析校验后才会保留。</p>
+ */
+public final class PuzzleGenerator {
+    /** 每个布局保留的空格数 */
+    private static final int EMPTY_CELLS = 2;
+    /** 每个连通分量最多产出的谜题数 */
+    private static final int PER_COMPONENT = 32;
+    /** 连续未产出新谜题的尝试次数上限 */
+    private static final int MAX_MISSES = 20000;
+    private static final Log log = Log.getInstance();
+
+    /**
+     * 生成结果
+     * @param key     去重键（方块组合 + 规范状态键）
+     * @param optimal 最少步数
+     * @param content 地图文件内容
+     */
+    public record Generated(String key, int optimal, String content) { }
+
+    private final int rows;
+    private final int cols;
+    private final int minMoves;
+    private final int maxMoves;
+    private final int threads;
+    /** 已枚举连通分量中的全部胜利状态键 */
+    private final Set<String> visited = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param rows     棋盘行数
+     * @param cols     棋盘列数
+     * @param minMoves 最优步数下限（含）
+     * @param maxMoves 最优步数上限（含）
+     * @param threads  并行线程数
+     */
+    public PuzzleGenerator(int rows, int cols, int minMoves, int maxMoves, int threads) {
+        this.rows = rows;
+        this.cols = cols;
+        this.minMoves = minMoves;
+        this.maxMoves = maxMoves;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * 生成若干互不相同的谜题
+     * @param count   目标数量
+     * @param seed    随机种子，各线程在此基础上派生
+     * @param timeout 最长运行时间（毫秒），到时或谜题穷尽时返回已生成的部分
+     * @return 按最优步数、去重键排序的谜题
+     */
+    public List<Generated> generate(int count, long seed, long timeout) throws InterruptedException {
+        Map<String, Generated> found = new ConcurrentHashMap<>();
+        long deadline = System.currentTimeMillis() + timeout;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            Random random = new Random(seed + t);
+            pool.execute(() -> {
+                // 连续多次尝试都落在已枚举的连通分量中，说明该尺寸与方块组合下的谜题已基本穷尽
+                int misses = 0;
+                while (found.size() < count && misses < MAX_MISSES && System.currentTimeMillis() < deadline
+                        && !Thread.currentThread().isInterrupted()) {
+                    int before = found.size();
+                    for (Generated g : attempt(random)) found.putIfAbsent(g.key(), g);
+                    misses = found.size() > before ? 0 : misses + 1;
+                }
+            });
+        }
+        pool.shutdown();
+        if (!pool.awaitTermination(Math.max(1, deadline - System.currentTimeMillis()) + 1000, TimeUnit.MILLISECONDS)) {
+            pool.shutdownNow();
+        }
+        List<Generated> list = new ArrayList<>(found.values());
+        list.sort(Comparator.comparingInt(Generated::optimal).thenComparing(Generated::key));
+        return list.size() > count ? list.subList(0, count) : list;
+    }
+
+    /**
+     * 一次生成尝试：枚举随机胜利布局所在的连通分量，从中挑选谜题
+     * <p>候选为距离落在区间内、且没有任何一步能走到更远状态的局部最远点，
+     * 按距离降序、规范键升序取前 {@link #PER_COMPONENT} 个，同一连通分量总是选出同一批谜题。</p>
+     * @return 谜题；布局无法摆放、连通分量过大或区间内没有状态时为空
+     */
+    List<Generated> attempt(Random random) {
+        int[][] layout = null;
+        for (int tries = 0; layout == null && tries < 100; tries++) layout = sampleGoal(random);
+        if (layout == null) return List.of();
+        GameMap template = new GameMap("generated", render(layout, 0, 0));
+        if (!template.isValid()) return List.of();
+        Board board = new Board(template);
+        Puzzle puzzle = new Puzzle(board);
+        StringBuilder types = new StringBuilder();
+        for (int i = 0; i < puzzle.getBlockCount(); i++) types.append(puzzle.getType(i).name().charAt(0));
+        long[] goal = puzzle.encode(board);
+        puzzle.canonicalize(goal, 0);
+        // 胜利布局落在已枚举过的连通分量中，该分量产出的谜题已经生成过
+        if (visited.contains(key(types, goal, 0, goal.length))) return List.of();
+        StateTable table;
+        try {
+            table = DistanceTable.reachable(puzzle, puzzle.encode(board), BfsSolver.DEFAULT_MAX_STATES);
+        } catch (IllegalStateException e) {
+            return List.of();
+        }
+        int[] distance = DistanceTable.goalDistances(puzzle, table);
+        int words = puzzle.getWords();
+        long[] keys = table.keys();
+        for (int i = 0; i < table.size(); i++) {
+            if (distance[i] == 0) visited.add(key(types, keys, i * words, words));
+        }
+        Puzzle.Cursor cursor = puzzle.cursor();
+        int[] buf = new int[puzzle.getBlockCount() * 4];
+        long[] next = new long[words];
+        List<Integer> candidates = new ArrayList<>();
+        for (int i = 0; i < table.size(); i++) {
+            int d = distance[i];
+            if (d < minMoves || d > maxMoves) continue;
+            cursor.load(keys, i * words);
+            int n = cursor.moves(buf);
+            boolean peak = true;
+            for (int k = 0; k < n && peak; k++) {
+                puzzle.apply(keys, i * words, buf[k], next, 0);
+                puzzle.canonicalize(next, 0);
+                peak = distance[table.indexOf(next, 0)] <= d;
+            }
+            if (peak) candidates.add(i);
+        }
+        candidates.sort((a, b) -> distance[a] != distance[b] ? distance[b] - distance[a]
+                : StateCodec.compare(keys, a * words, keys, b * words, words));
+
+        List<Generated> result = new ArrayList<>();
+        for (int c : candidates.subList(0, Math.min(PER_COMPONENT, candidates.size()))) {
+            // 按规范状态重新摆放方块，保持原有方块 ID 与胜利区
+            int[][] start = new int[rows][cols];
+            for (int i = 0; i < puzzle.getBlockCount(); i++) {
+                int head = puzzle.getCodec().get(keys, c * words, i);
+                fill(start, head / cols, head % cols, puzzle.getWidth(i), puzzle.getHeight(i), puzzle.getId(i));
+            }
+            int optimal = distance[c];
+            String content = render(start, Math.max(60, optimal * 4), optimal + Math.max(10, optimal / 2));
+            if (new GameMap("generated", content).isValid()) result.add(new Generated(key(types, keys, c * words, words), optimal, content));
+        }
+        return result;
+    }
+
+    // 去重键：方块类型序列 + 规范状态的十六进制
+    private static String key(CharSequence types, long[] s, int off, int words) {
+        StringBuilder sb = new StringBuilder(types).append(':');
+        for (int w = 0; w < words; w++) sb.append(String.format("%016x", s[off + w]));
+        return sb.toString();
+    }
+
+    /**
+     * 随机生成一个胜利布局：LARGE 位于底部居中的 2×2 胜利区，其余方块组合随机
+     * @return 方块 ID 矩阵（0 为空格），摆放失败时返回 null
+     */
+    private int[][] sampleGoal(Random random) {
+        int[][] layout = new int[rows][cols];
+        int gr = rows - 2, gc = (cols - 2) / 2;
+        fill(layout, gr, gc, 2, 2, 1);
+
+        // 两格方块对数在 [pairs - 1, pairs + 1] 间浮动，其余面积由 SMALL 补足
+        int free = rows * cols - 4 - EMPTY_CELLS;
+        int pairs = Math.max(0, Math.min(free / 2, free * 5 / 14 + random.nextInt(3) - 1));
+        int horizontal = random.nextInt(Math.min(pairs, 4) + 1);
+        int vertical = pairs - horizontal;
+        int small = free - 2 * pairs;
+
+        // ID 按类型连续分配，使各次尝试的方块顺序一致，规范状态键可直接比较
+        int id = 2;
+        for (int k = 0; k < horizontal; k++) if (!place(layout, random, 2, 1, id++)) return null;
+        for (int k = 0; k < vertical; k++) if (!place(layout, random, 1, 2, id++)) return null;
+        for (int k = 0; k < small; k++) if (!place(layout, random, 1, 1, id++)) return null;
+        return layout;
+    }
+
+    // 在所有能放下的位置中随机选一个放置方块
+    private boolean place(int[][] layout, Random random, int w, int h, int id) {
+        List<int[]> options = new ArrayList<>();
+        for (int r = 0; r + h <= rows; r++) {
+            for (int c = 0; c + w <= cols; c++) {
+                boolean ok = true;
+                for (int dr = 0; dr < h && ok; dr++) {
+                    for (int dc = 0; dc < w && ok; dc++) ok = layout[r + dr][c + dc] == 0;
+                }
+                if (ok) options.add(new int[]{r, c});
+            }
+        }
+        if (options.isEmpty()) return false;
+        int[] pick = options.get(random.nextInt(options.size()));
+        fill(layout, pick[0], pick[1], w, h, id);
+        return true;
+    }
+
+    private static void fill(int[][] layout, int r0, int c0, int w, int h, int id) {
+        for (int r = r0; r < r0 + h; r++) {
+            for (int c = c0; c < c0 + w; c++) layout[r][c] = id;
+        }
+    }
+
+    /**
+     * 按地图文件格式输出：首行为时间与步数限制，其后逐行列出方块 ID，胜利区单元格后加 *
+     */
+    private String render(int[][] layout, int timeLimit, int moveLimit) {
+        int gr = rows - 2, gc = (cols - 2) / 2;
+        StringBuilder sb = new StringBuilder().append(timeLimit).append(' ').append(moveLimit).append('\n');
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                if (c > 0) sb.append(',');
+                sb.append(layout[r][c]);
+                if (r >= gr && c >= gc && c < gc + 2) sb.append('*');
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 用法：{@code java solver.PuzzleGenerator 数量 最少步数 最多步数 [输出目录]}，
+     * 输出目录缺省为 maps/generated，棋盘为经典的 5 行 4 列
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        int min = args.length > 1 ? Integer.parseInt(args[1]) : 40;
+        int max = args.length > 2 ? Integer.parseInt(args[2]) : 120;
+        Path dir = Paths.get(args.length > 3 ? args[3] : "maps/generated");
+        long begin = System.currentTimeMillis();
+        PuzzleGenerator generator = new PuzzleGenerator(5, 4, min, max, ParallelBfsSolver.configuredThreads());
+        List<Generated> list = generator.generate(count, begin, 10 * 60 * 1000L);
+        Files.createDirectories(dir);
+        for (int i = 0; i < list.size(); i++) {
+            Generated g = list.get(i);
+            Path file = dir.resolve(String.format("gen-%03d-%d步.txt", i + 1, g.optimal()));
+            Files.writeString(file, g.content(), StandardCharsets.UTF_8);
+        }
+        log.info(String.format("生成 %d 个谜题，耗时 %.1f s", list.size(), (System.currentTimeMillis() - begin) / 1000.0));
+    }
+}
@@ -0,0 +1,48 @@
+package solver;
+
+import model.Board;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 求解结果：是否有解、最优移动序列以及搜索统计信息
+ * @param solved 是否找到解
+ * @param moves  按时间顺序排列的移动序列，无解时为空列表
+ * @param stats  搜索统计信息
+ */
+public record Solution(boolean solved, List<Board.MoveEntry> moves, Stats stats) {
+
+    /**
+     * 搜索统计信息
+     * @param expanded     扩展的结点数
+     * @param stored       存储的状态数
+     * @param peakBytes    搜索结构占用的峰值内存（字节，按容量估算）
+     * @param elapsedNanos 搜索耗时（纳秒）
+     * @param extras       各求解器特有的附加指标
+     */
+    public record Stats(long expanded, long stored, long peakBytes, long elapsedNanos,
+                        Map<String, Number> extras) {
+
+        public Stats(long expanded, long stored, long peakBytes, long elapsedNanos) {
+            this(expanded, stored, peakBytes, elapsedNanos, new LinkedHashMap<>());
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("扩展 %d 个结点，存储 %d 个状态，峰值内存 %.1f KB，耗时 %.1f ms",
+                    expanded, stored, peakBytes / 1024.0, elapsedNanos / 1e6));
+            for (Map.Entry<String, Number> e : extras.entrySet()) {
+                sb.append("，").append(e.getKey()).append("=").append(e.getValue());
+            }
+            return sb.toString();
+        }
+    }
+
+    /** 解的步数，无解时为 -1 */
+    public int length() {
+        return solved ? moves.size() : -1;
+    }
+}
@@ -0,0 +1,268 @@
+package solver;
+
+import model.Block;
+import model.Board;
+import model.GameMap;
+import model.StateCodec;
+import util.Config;
+import util.Log;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 求解结果缓存（使用枚举实现单例）：
+ * 以「地图 MD5 + 起始状态压缩键」为键，内存中按 LRU 保留不超过字节预算的结果，
+ * 同时追加写入 solutions 目录下按地图 MD5 命名的文件，重启后首次访问该地图时整体读回。
+ * <p>磁盘文件每行一条记录：{@code 起始状态键 是否有解 方块ID:方向序号,...}，同一键以最后一行为准。
+ * 追加后文件超过磁盘上限时压实：每个键只保留最后一行，仍超出一半上限时再丢弃最早写入的记录，
+ * 因此单个文件的大小与首次读回的耗时都有上界，压实的代价按追加量均摊。</p>
+ * <p>内存预算由配置项 solutionCacheBytes 指定，未配置时为 {@link #DEFAULT_BYTES}；
+ * 每个地图文件的磁盘上限由 solutionCacheDiskBytes 指定，未配置时为 {@link #DEFAULT_DISK_BYTES}。</p>
+ */
+public class SolutionCache {
+    /** 默认内存预算 */
+    public static final long DEFAULT_BYTES = 4L << 20;
+    /** 默认的单个地图文件磁盘上限 */
+    public static final long DEFAULT_DISK_BYTES = 1L << 20;
+
+    private static final String DIR = "solutions";
+    private static final String EXT = ".sol";
+    /** 每条记录除走法外的估算开销（键字符串、Map 结点与 Solution 对象） */
+    private static final int ENTRY_OVERHEAD = 160;
+    /** 无解记录的占位值（与空解区分：起点即胜利时解为空列表），按引用比较 */
+    private static final List<Board.MoveEntry> UNSOLVED = new ArrayList<>(0);
+    private final Log log = Log.getInstance();
+
+    private final long budget;
+    private final long diskBudget;
+    private final Map<String, List<Board.MoveEntry>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    /** 已从磁盘读入的地图 MD5 */
+    private final Set<String> loaded = new HashSet<>();
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * 私有构造方法（仅允许枚举单例调用），从配置读取内存预算
+     */
+    private SolutionCache() {
+        int configured = Config.getInstance().getInt("solutionCacheBytes");
+        this.budget = configured > 0 ? configured : DEFAULT_BYTES;
+        int disk = Config.getInstance().getInt("solutionCacheDiskBytes");
+        this.diskBudget = disk > 0 ? disk : DEFAULT_DISK_BYTES;
+    }
+
+    /**
+     * 枚举单例（全局唯一）
+     */
+    private enum Singleton {
+        INSTANCE;
+
+        private final SolutionCache cacheInstance = new SolutionCache();
+
+        private SolutionCache getInstance() {
+            return cacheInstance;
+        }
+    }
+
+    /**
+     * 获取单例实例
+     */
+    public static SolutionCache getInstance() {
+        return Singleton.INSTANCE.getInstance();
+    }
+
+    /**
+     * 先查缓存，未命中时用给定求解器求解并写入缓存（因规模上限放弃的结果不缓存）
+     * @param map    地图模型，提供 MD5
+     * @param board  起始棋盘
+     * @param solver 未命中时使用的求解器
+     * @return 求解结果；命中时统计信息中带 cached=1
+     */
+    public Solution solve(GameMap map, Board board, Solver solver) {
+        String md5 = map.getMd5();
+        if (md5 == null) return solver.solve(board);
+        String key = md5 + ":" + startKey(board);
+        Solution cached = get(md5, key);
+        if (cached != null) return cached;
+        Solution solution = solver.solve(board);
+        if (!solution.stats().extras().containsKey("aborted")) put(md5, key, solution);
+        return solution;
+    }
+
+    // 查询内存缓存，必要时先读入该地图的磁盘记录
+    private synchronized Solution get(String md5, String key) {
+        long begin = System.nanoTime();
+        if (!loaded.contains(md5) && readDisk(md5)) loaded.add(md5);
+        List<Board.MoveEntry> moves = entries.get(key);
+        if (moves == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        Solution.Stats stats = new Solution.Stats(0, 0, 0, System.nanoTime() - begin);
+        stats.extras().put("cached", 1);
+        return moves == UNSOLVED ? new Solution(false, List.of(), stats) : new Solution(true, moves, stats);
+    }
+
+    private synchronized void put(String md5, String key, Solution solution) {
+        List<Board.MoveEntry> moves = solution.solved() ? List.copyOf(solution.moves()) : UNSOLVED;
+        insert(key, moves);
+        appendDisk(md5, key.substring(md5.length() + 1), moves);
+    }
+
+    // 放入内存并按字节预算淘汰最久未使用的记录
+    private void insert(String key, List<Board.MoveEntry> moves) {
+        List<Board.MoveEntry> old = entries.put(key, moves);
+        if (old != null) bytes -= sizeOf(key, old);
+        bytes += sizeOf(key, moves);
+        Iterator<Map.Entry<String, List<Board.MoveEntry>>> it = entries.entrySet().iterator();
+        while (bytes > budget && it.hasNext()) {
+            Map.Entry<String, List<Board.MoveEntry>> e = it.next();
+            if (e.getKey().equals(key)) continue;
+            bytes -= sizeOf(e.getKey(), e.getValue());
+            it.remove();
+            evictions++;
+        }
+    }
+
+    private static long sizeOf(String key, List<Board.MoveEntry> moves) {
+        return ENTRY_OVERHEAD + 2L * key.length() + 24L * moves.size();
+    }
+
+    // 起始状态压缩键的十六进制表示（按方块 ID 精确区分，不做归并）
+    private static String startKey(Board board) {
+        List<Block> blocks = board.getBlocks();
+        StateCodec codec = new StateCodec(board.getRows(), board.getCols(), blocks.size());
+        StringBuilder sb = new StringBuilder();
+        for (long w : codec.encode(board)) sb.append(String.format("%016x", w));
+        return sb.toString();
+    }
+
+    private static Path fileFor(String md5) {
+        return Paths.get(DIR, md5 + EXT);
+    }
+
+    // 读入该地图的磁盘记录，成功（或文件不存在）时返回 true，失败时下次访问再试
+    private boolean readDisk(String md5) {
+        Path file = fileFor(md5);
+        if (!Files.exists(file)) return true;
+        try {
+            for (Map.Entry<String, String> e : readLines(file).entrySet()) {
+                String[] parts = e.getValue().split(" ", 3);
+                List<Board.MoveEntry> moves = UNSOLVED;
+                if ("1".equals(parts[1])) {
+                    moves = new ArrayList<>();
+                    if (parts.length == 3 && !parts[2].isEmpty()) {
+                        for (String m : parts[2].split(",")) {
+                            String[] f = m.split(":");
+                            moves.add(new Board.MoveEntry(Integer.parseInt(f[0]),
+                                    Block.Direction.values()[Integer.parseInt(f[1])]));
+                        }
+                    }
+                    moves = List.copyOf(moves);
+                }
+                insert(md5 + ":" + e.getKey(), moves);
+            }
+            return true;
+        } catch (IOException | RuntimeException e) {
+            log.warn("读取求解缓存失败：" + file + "，" + e.getMessage());
+            return false;
+        }
+    }
+
+    private void appendDisk(String md5, String startKey, List<Board.MoveEntry> moves) {
+        Path file = fileFor(md5);
+        try {
+            Files.createDirectories(file.getParent());
+            try (BufferedWriter w = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                StringBuilder sb = new StringBuilder(startKey).append(moves == UNSOLVED ? " 0 " : " 1 ");
+                for (int i = 0; i < moves.size(); i++) {
+                    if (i > 0) sb.append(',');
+                    sb.append(moves.get(i).blockId()).append(':').append(moves.get(i).dir().ordinal());
+                }
+                w.write(sb.toString());
+                w.newLine();
+            }
+            if (Files.size(file) > diskBudget) compactDisk(file);
+        } catch (IOException e) {
+            log.warn("写入求解缓存失败：" + file + "，" + e.getMessage());
+        }
+    }
+
+    /**
+     * 按键读取磁盘记录：同一键以最后一行为准，并按最后写入的先后排列（最早的在前）
+     * @return 起始状态键 -> 整行（已去除首尾空白）
+     */
+    private static LinkedHashMap<String, String> readLines(Path file) throws IOException {
+        LinkedHashMap<String, String> lines = new LinkedHashMap<>();
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            String trimmed = line.trim();
+            int sp = trimmed.indexOf(' ');
+            if (sp <= 0 || trimmed.length() < sp + 2) continue;
+            String key = trimmed.substring(0, sp);
+            lines.remove(key);
+            lines.put(key, trimmed.substring(sp + 1));
+        }
+        return lines;
+    }
+
+    // 压实磁盘文件：每个键只留一行，仍超过一半上限时丢弃最早写入的记录，先写临时文件再替换
+    private void compactDisk(Path file) throws IOException {
+        long before = Files.size(file);
+        LinkedHashMap<String, String> lines = readLines(file);
+        long size = 0;
+        for (Map.Entry<String, String> e : lines.entrySet()) size += lineBytes(e);
+        Iterator<Map.Entry<String, String>> it = lines.entrySet().iterator();
+        while (size > diskBudget / 2 && it.hasNext()) {
+            size -= lineBytes(it.next());
+            it.remove();
+        }
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (BufferedWriter w = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, String> e : lines.entrySet()) {
+                w.write(e.getKey() + " " + e.getValue());
+                w.newLine();
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.info(String.format("压实求解缓存 %s：%d -> %d 字节，%d 条记录", file, before, Files.size(file), lines.size()));
+    }
+
+    private static long lineBytes(Map.Entry<String, String> e) {
+        return e.getKey().length() + 1 + e.getValue().length() + System.lineSeparator().length();
+    }
+
+    /** 命中次数 */
+    public synchronized long getHits() { return hits; }
+    /** 未命中次数 */
+    public synchronized long getMisses() { return misses; }
+    /** 因超出字节预算被淘汰的记录数 */
+    public synchronized long getEvictions() { return evictions; }
+    /** 内存中记录占用的估算字节数 */
+    public synchronized long getBytes() { return bytes; }
+    /** 内存预算字节数 */
+    public long getBudget() { return budget; }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("命中 %d 次，未命中 %d 次，淘汰 %d 条，内存 %.1f/%.1f KB",
+                hits, misses, evictions, bytes / 1024.0, budget / 1024.0);
+    }
+}
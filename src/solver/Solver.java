@@ -0,0 +1,26 @@
+package solver;
+
+import model.Board;
+import model.GameMap;
+
+/**
+ * 求解器接口：给定棋盘当前状态，求出到达胜利状态的移动序列
+ */
+public interface Solver {
+
+    /**
+     * 从棋盘当前状态开始求解，不修改棋盘
+     * @param board 起始棋盘
+     * @return 求解结果
+     */
+    Solution solve(Board board);
+
+    /**
+     * 从地图的初始布局开始求解
+     * @param map 地图模型
+     * @return 求解结果
+     */
+    default Solution solve(GameMap map) {
+        return solve(new Board(map));
+    }
+}
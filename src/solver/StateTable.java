@@ -0,0 +1,128 @@
+package solver;
+
+import model.StateCodec;
+
+import java.util.Arrays;
+
+/**
+ * 压缩状态的开放寻址去重表（线性探测，全部使用基本类型数组）。
+ * <p>状态按插入顺序连续存放在 keys 中，并为每个状态记录父状态下标与到达它的走法，
+ * 因此在广度优先搜索中该表同时充当队列，并可回溯出完整路径。</p>
+ */
+final class StateTable {
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private final int words;
+    /** 按插入顺序存放的状态，第 i 个状态位于 [i * words, (i + 1) * words) */
+    private long[] keys;
+    /** 父状态下标，起点为 -1 */
+    private int[] parents;
+    /** 从父状态到达该状态的走法编码，起点为 -1 */
+    private int[] moves;
+    /** 哈希槽：状态下标 + 1，0 表示空槽 */
+    private int[] slots;
+    private int size;
+
+    StateTable(int words, int expected) {
+        this.words = words;
+        int cap = Math.max(16, expected);
+        this.keys = new long[cap * words];
+        this.parents = new int[cap];
+        this.moves = new int[cap];
+        this.slots = new int[tableSizeFor((int) (cap / LOAD_FACTOR))];
+    }
+
+    /** 已存放状态数 */
+    int size() {
+        return size;
+    }
+
+    /** 状态存储数组（只读使用），第 i 个状态偏移为 i * words */
+    long[] keys() {
+        return keys;
+    }
+
+    int parent(int index) {
+        return parents[index];
+    }
+
+    int move(int index) {
+        return moves[index];
+    }
+
+    /**
+     * 改写状态的父状态与到达走法（A* 中发现更短路径时使用）
+     */
+    void setParent(int index, int parent, int move) {
+        parents[index] = parent;
+        moves[index] = move;
+    }
+
+    /**
+     * 查找状态下标
+     * @return 状态下标，不存在时返回 -1
+     */
+    int indexOf(long[] s, int off) {
+        int mask = slots.length - 1;
+        int pos = (int) StateCodec.hash(s, off, words) & mask;
+        while (true) {
+            int slot = slots[pos];
+            if (slot == 0) return -1;
+            if (StateCodec.equals(keys, (slot - 1) * words, s, off, words)) return slot - 1;
+            pos = (pos + 1) & mask;
+        }
+    }
+
+    /**
+     * 若状态不存在则插入
+     * @return 新状态的下标；状态已存在时返回 -1
+     */
+    int add(long[] s, int off, int parent, int move) {
+        if (size + 1 > slots.length * LOAD_FACTOR) rehash();
+        int mask = slots.length - 1;
+        int pos = (int) StateCodec.hash(s, off, words) & mask;
+        while (true) {
+            int slot = slots[pos];
+            if (slot == 0) break;
+            if (StateCodec.equals(keys, (slot - 1) * words, s, off, words)) return -1;
+            pos = (pos + 1) & mask;
+        }
+        if (size == parents.length) grow();
+        int index = size++;
+        System.arraycopy(s, off, keys, index * words, words);
+        parents[index] = parent;
+        moves[index] = move;
+        slots[pos] = index + 1;
+        return index;
+    }
+
+    /**
+     * 当前占用的内存字节数（按数组容量估算）
+     */
+    long bytes() {
+        return (long) keys.length * 8 + (long) parents.length * 4 + (long) moves.length * 4 + (long) slots.length * 4;
+    }
+
+    private void grow() {
+        int cap = parents.length * 2;
+        keys = Arrays.copyOf(keys, cap * words);
+        parents = Arrays.copyOf(parents, cap);
+        moves = Arrays.copyOf(moves, cap);
+    }
+
+    private void rehash() {
+        int[] next = new int[slots.length * 2];
+        int mask = next.length - 1;
+        for (int i = 0; i < size; i++) {
+            int pos = (int) StateCodec.hash(keys, i * words, words) & mask;
+            while (next[pos] != 0) pos = (pos + 1) & mask;
+            next[pos] = i + 1;
+        }
+        slots = next;
+    }
+
+    private static int tableSizeFor(int n) {
+        int cap = Integer.highestOneBit(Math.max(16, n - 1)) << 1;
+        return cap < 0 ? 1 << 30 : cap;
+    }
+}
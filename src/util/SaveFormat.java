@@ -0,0 +1,199 @@
+package util;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * 二进制存档的底层编解码：文件头、记录分帧、变长整数与 CRC32C 校验。
+ * <p>文件布局：8 字节定长文件头（魔数 "HRRS"、2 字节版本号、2 字节保留位），其后是若干条记录；
+ * 每条记录为 {@code 类型(1 字节) | 负载长度(varint) | 负载 | CRC32C(4 字节，覆盖类型、长度与负载)}。
+ * 多字节定长字段一律小端序。记录的具体含义由 {@link Saver} 解释，本类只负责字节层面的读写。</p>
+ * <p>读取时遇到校验失败或不完整的记录即停止，之前的记录照常返回，
+ * 因此写到一半中断的文件只会丢失最后一条记录。</p>
+ */
+final class SaveFormat {
+    /** 文件魔数 "HRRS" */
+    static final byte[] MAGIC = {'H', 'R', 'R', 'S'};
+    /** 当前格式版本 */
+    static final int VERSION = 1;
+    /** 文件头长度（字节） */
+    static final int HEADER_SIZE = 8;
+
+    private SaveFormat() { }
+
+    /**
+     * 一条已通过校验的记录，负载为 data[off, off + length) 的视图，不复制
+     */
+    record Record(int type, byte[] data, int off, int length) {
+        /** 从负载起点读取 */
+        In payload() {
+            return new In(data, off, off + length);
+        }
+    }
+
+    /**
+     * 解析结果
+     * @param records 按文件顺序排列的有效记录
+     * @param valid   有效内容的字节长度（文件头加全部有效记录）
+     * @param damaged 有效记录之后是否还有无法识别的字节（损坏或写入中断）
+     */
+    record Parsed(List<Record> records, int valid, boolean damaged) { }
+
+    /** 生成文件头 */
+    static byte[] header() {
+        byte[] h = new byte[HEADER_SIZE];
+        System.arraycopy(MAGIC, 0, h, 0, MAGIC.length);
+        h[4] = (byte) VERSION;
+        h[5] = (byte) (VERSION >>> 8);
+        return h;
+    }
+
+    /**
+     * 解析整个文件内容
+     * @throws IOException 文件头缺失、魔数不符或版本不受支持时抛出
+     */
+    static Parsed parse(byte[] data) throws IOException {
+        if (data.length < HEADER_SIZE || !Arrays.equals(data, 0, MAGIC.length, MAGIC, 0, MAGIC.length)) {
+            throw new IOException("存档文件头不正确");
+        }
+        int version = (data[4] & 0xFF) | (data[5] & 0xFF) << 8;
+        if (version != VERSION) {
+            throw new IOException("不支持的存档版本：" + version);
+        }
+        List<Record> records = new ArrayList<>();
+        int pos = HEADER_SIZE;
+        while (pos < data.length) {
+            In in = new In(data, pos, data.length);
+            int type, length;
+            try {
+                type = in.u8();
+                length = in.varint();
+            } catch (IOException ex) {
+                break;
+            }
+            int off = in.pos;
+            if (length < 0 || length > data.length - off - 4) break;
+            int stored = (data[off + length] & 0xFF) | (data[off + length + 1] & 0xFF) << 8
+                    | (data[off + length + 2] & 0xFF) << 16 | (data[off + length + 3] & 0xFF) << 24;
+            if (stored != crc(data, pos, off + length - pos)) break;
+            records.add(new Record(type, data, off, length));
+            pos = off + length + 4;
+        }
+        return new Parsed(records, pos, pos < data.length);
+    }
+
+    /**
+     * 把一条记录（类型 + 负载）分帧后追加到 dst
+     */
+    static void frame(Out dst, int type, Out payload) {
+        int start = dst.size;
+        dst.u8(type);
+        dst.varint(payload.size);
+        dst.bytes(payload.buf, 0, payload.size);
+        dst.int32(crc(dst.buf, start, dst.size - start));
+    }
+
+    private static int crc(byte[] data, int off, int len) {
+        CRC32C crc = new CRC32C();
+        crc.update(data, off, len);
+        return (int) crc.getValue();
+    }
+
+    /** 可增长的字节输出缓冲 */
+    static final class Out {
+        byte[] buf = new byte[64];
+        int size;
+
+        void u8(int v) {
+            ensure(1);
+            buf[size++] = (byte) v;
+        }
+
+        void int32(int v) {
+            ensure(4);
+            for (int k = 0; k < 4; k++) buf[size++] = (byte) (v >>> (8 * k));
+        }
+
+        /** 无符号 LEB128 变长整数：每字节 7 位，高位为续位标志 */
+        void varint(long v) {
+            ensure(10);
+            while ((v & ~0x7FL) != 0) {
+                buf[size++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            buf[size++] = (byte) v;
+        }
+
+        void bytes(byte[] src, int off, int len) {
+            ensure(len);
+            System.arraycopy(src, off, buf, size, len);
+            size += len;
+        }
+
+        /** 变长前缀的 UTF-8 字符串 */
+        void string(String s) {
+            byte[] b = s.getBytes(StandardCharsets.UTF_8);
+            varint(b.length);
+            bytes(b, 0, b.length);
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buf, size);
+        }
+
+        private void ensure(int n) {
+            if (size + n > buf.length) buf = Arrays.copyOf(buf, Math.max(buf.length * 2, size + n));
+        }
+    }
+
+    /** 带边界检查的字节输入视图 */
+    static final class In {
+        private final byte[] data;
+        private final int end;
+        int pos;
+
+        In(byte[] data, int off, int end) {
+            this.data = data;
+            this.pos = off;
+            this.end = end;
+        }
+
+        int u8() throws IOException {
+            if (pos >= end) throw new IOException("记录意外结束");
+            return data[pos++] & 0xFF;
+        }
+
+        long varlong() throws IOException {
+            long v = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = u8();
+                v |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return v;
+            }
+            throw new IOException("变长整数过长");
+        }
+
+        int varint() throws IOException {
+            return (int) varlong();
+        }
+
+        byte[] bytes(int len) throws IOException {
+            if (len < 0 || len > end - pos) throw new IOException("记录意外结束");
+            byte[] b = Arrays.copyOfRange(data, pos, pos + len);
+            pos += len;
+            return b;
+        }
+
+        String string() throws IOException {
+            int len = varint();
+            if (len < 0 || len > end - pos) throw new IOException("记录意外结束");
+            String s = new String(data, pos, len, StandardCharsets.UTF_8);
+            pos += len;
+            return s;
+        }
+    }
+}
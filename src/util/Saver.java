@@ -6,27 +6,65 @@ import model.GameMap;
 import model.Block;
 import javax.swing.*;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.security.MessageDigest;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * 存档工具类：
  * 提供用户存档的读写、校验、统计与自动修正功能。
- * 存档文件格式：
- * 第一行为最近游戏地图名称或 "null"；
- * 后续每行格式为 [mapName, md5]{body}，
- * body 含各字段及历史移动记录。
+ * 存档文件为二进制格式（见 {@link SaveFormat}）：定长文件头之后，
+ * 先是一条最近游戏地图记录，再是每张地图一条存档记录，每条记录带 CRC32C 校验；
+ * 历史移动按位紧密打包，长历史的存档约为旧文本格式的十分之一。
+ * 旧版文本存档（.sav）在首次访问时单向迁移为新格式，原文件改名为 .sav.bak 保留。
+ * <p>存档文件同时是只追加的日志：每次保存只在文件末尾追加一条增量记录（变化的字段与新增的历史），
+ * 耗时只取决于本次变化的大小，与玩过多少地图无关；读取时按顺序重放，后写的记录覆盖先写的。
+ * 追加的字节超过上次完整写入的大小后，在后台把当前内容压实为每张地图一条完整记录。
+ * 写入中途崩溃只会留下不完整的尾部记录，读取时校验失败即截掉，之前的存档不受影响。</p>
+ * <p>解析结果按用户缓存，文件长度与缓存一致时直接复用，不必每次重读整个文件。</p>
  */
 public class Saver {
     private static final String SAVE_DIR = "saves";
-    private static final String SAVE_EXT = ".sav";
+    private static final String SAVE_EXT = ".hrs";
+    /** 旧版文本存档扩展名，仅用于迁移 */
+    private static final String LEGACY_EXT = ".sav";
+    /** 记录类型：最近游戏地图名称，空串表示无 */
+    private static final int RECORD_RECENT = 1;
+    /** 记录类型：单张地图的存档 */
+    private static final int RECORD_MAP = 2;
+    /** 记录类型：单张地图存档的增量（保留前若干步历史，再追加新走法） */
+    private static final int RECORD_MAP_DELTA = 3;
+    /** 追加字节数达到该值且超过上次完整写入的大小时触发压实 */
+    private static final long COMPACT_MIN_BYTES = 64 * 1024;
     private static final Log log = Log.getInstance();
 
+    /** 保护存档文件与缓存的锁，保存、读取与后台压实互斥 */
+    private static final Object LOCK = new Object();
+    /** 用户名 -> 已解析的存档内容 */
+    private static final Map<String, Contents> CACHE = new HashMap<>();
+    private static final ExecutorService COMPACTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "save-compactor");
+        t.setDaemon(true);
+        return t;
+    });
+
     /** 存档统计信息：完成次数、最佳用时与最佳步数 */
         public record Stats(int completedCount, long bestTime, int bestMoves) {}
 
+    /** 解析后的存档内容及其在磁盘上的日志状态 */
+    private static class Contents {
+        String recentMap;
+        final Map<String, Entry> entries = new LinkedHashMap<>();
+        /** 文件当前长度（字节） */
+        long length;
+        /** 上次完整写入（或读取）时的文件长度，其后均为追加的增量 */
+        long base;
+    }
+
     /**
      * 获取指定用户在指定地图上的存档统计信息
      * @param username 用户名
@@ -34,60 +72,21 @@ public class Saver {
      * @return 包含统计信息的 Optional，若无有效条目则为空
      */
     public static Optional<Stats> getStats(String username, GameMap map) {
-        Path file = Paths.get(SAVE_DIR, username + SAVE_EXT);
-        if (!Files.exists(file)) return Optional.empty();
-
-        // 读取并验证文件格式
-        List<String> lines;
-        try {
-            lines = Files.readAllLines(file, StandardCharsets.UTF_8);
-        } catch (IOException e) {
-            return Optional.empty();
-        }
-        if (!checkFormat(lines) || lines.size() < 2) {
-            return Optional.empty();
-        }
-
-        // 遍历每条记录，查找目标地图
-        String header = lines.get(0);
-        for (int i = 1; i < lines.size(); i++) {
-            String line = lines.get(i);
-            // 解析 [mapName,md5]{body}
-            int b1 = line.indexOf('['), b2 = line.indexOf(']');
-            String[] meta = line.substring(b1 + 1, b2).split(",", 2);
-            if (!meta[0].equals(map.getName())) continue;
-
-            String body = line.substring(line.indexOf('{') + 1, line.lastIndexOf('}'));
-            Entry entry;
+        synchronized (LOCK) {
+            Contents contents;
             try {
-                entry = Entry.fromBody(meta[0], body);
-            } catch (Exception ex) {
+                contents = read(username);
+            } catch (IOException ex) {
                 showError("解析存档出错：" + ex.getMessage());
                 return Optional.empty();
             }
-
-            // 校验 MD5，如不匹配可自动修正或放弃
-            String storedMd5 = meta[1];
-            try {
-                String actualMd5 = entry.calculateMd5();
-                if (!storedMd5.equals(actualMd5)) {
-                    if (!confirm("统计读取时 MD5 校验失败，是否继续？")) {
-                        return Optional.empty();
-                    }
-                    // 自动修正并写回
-                    Map<String, Entry> all = loadEntries(username);
-                    rewriteEntries(username, header, all);
-                }
-            } catch (Exception ex) {
-                showError("MD5 校验出错：" + ex.getMessage());
-                return Optional.empty();
-            }
-
+            if (contents == null) return Optional.empty();
+            Entry entry = contents.entries.get(map.getName());
+            if (entry == null) return Optional.empty();
             return Optional.of(
                     new Stats(entry.completedCount, entry.bestTime, entry.bestMoves)
             );
         }
-        return Optional.empty();
     }
 
     /**
@@ -95,74 +94,83 @@ public class Saver {
      * @throws Exception 校验失败或 I/O 异常时抛出
      */
     public static long load(Board board, GameMap map, String username) throws Exception {
-        Path file = Paths.get(SAVE_DIR, username + SAVE_EXT);
-        if (!Files.exists(file)) {
-            throw new IOException("存档文件不存在");
-        }
-
-        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
-        if (!checkFormat(lines) || lines.size() < 2) {
-            throw new IOException("存档格式不正确");
-        }
-
-        Map<String, Entry> all = new LinkedHashMap<>();
-        Entry target = null;
-        String storedMd5 = null;
-
-        // 解析所有条目
-        for (int i = 1; i < lines.size(); i++) {
-            String line = lines.get(i);
-            int b1 = line.indexOf('['), b2 = line.indexOf(']');
-            String[] meta = line.substring(b1 + 1, b2).split(",", 2);
-            String mapName = meta[0];
-            String body = line.substring(line.indexOf('{') + 1, line.lastIndexOf('}'));
-            Entry e = Entry.fromBody(mapName, body);
-            all.put(mapName, e);
-            if (mapName.equals(map.getName())) {
-                target = e;
-                storedMd5 = meta[1];
+        synchronized (LOCK) {
+            Contents contents = read(username);
+            if (contents == null) {
+                throw new IOException("存档文件不存在");
+            }
+            Entry target = contents.entries.get(map.getName());
+            if (target == null) {
+                throw new IOException("找不到对应地图的存档");
             }
-        }
-        if (target == null) {
-            throw new IOException("找不到对应地图的存档");
-        }
-
-        // MD5 校验并可修正
-        validateMd5(username, lines.get(0), all, target, storedMd5, map);
 
-        // 验证并修正移动历史
-        int validSteps = validateHistory(board, target.history);
-        if (validSteps < target.history.size()) {
-            if (!confirm("历史链校验失败，是否截断继续？")) {
-                throw new SecurityException("历史链校验失败");
+            // 地图 MD5 校验并可修正
+            if (!Objects.equals(map.getMd5(), target.mapMd5)) {
+                if (!confirm("地图 MD5 不匹配，是否继续？")) {
+                    throw new SecurityException("地图 MD5 不匹配");
+                }
+                target.mapMd5 = map.getMd5();
+                rewriteEntries(username, contents);
             }
-            target.truncateHistory(validSteps);
-            rewriteEntries(username, lines.get(0), all);
-        }
 
-        // 重放历史
-        board.reset();
-        for (MoveEntry me : target.history) {
-            Block b = board.findBlockById(me.blockId());
-            board.moveBlock(b, me.dir());
+            // 一次遍历校验并重放历史，遇到非法走法时可截断
+            List<MoveEntry> history = target.history();
+            board.reset();
+            int validSteps = board.applyAll(history);
+            if (validSteps < history.size()) {
+                if (!confirm("历史链校验失败，是否截断继续？")) {
+                    board.reset();
+                    throw new SecurityException("历史链校验失败");
+                }
+                target.truncateHistory(validSteps);
+                rewriteEntries(username, contents);
+            }
+            return target.elapsedSoFar;
         }
-        return target.elapsedSoFar;
     }
 
-    /** 统一格式校验 */
-    private static boolean checkFormat(List<String> lines) {
-        if (lines.isEmpty()) {
-            showError("存档为空或格式不正确");
-            return false;
+    /**
+     * 读取用户存档（调用方须持有 LOCK）；只有旧版文本存档时先迁移。
+     * 文件长度与缓存一致时直接返回缓存；尾部有不完整或校验失败的记录时截掉，以便继续追加
+     * @return 存档内容，文件不存在时返回 null
+     * @throws IOException 读取失败或文件头不正确时抛出
+     */
+    private static Contents read(String username) throws IOException {
+        Path file = Paths.get(SAVE_DIR, username + SAVE_EXT);
+        if (!Files.exists(file) && !migrate(username)) {
+            CACHE.remove(username);
+            return null;
         }
-        for (int i = 1; i < lines.size(); i++) {
-            String ln = lines.get(i).trim();
-            if (!ln.matches("^\\[[^,]+,[0-9A-Fa-f]{32}]\\{.+}$")) {
-                showError("第" + (i+1) + "行格式不符");
-                return false;
+        Contents cached = CACHE.get(username);
+        if (cached != null && cached.length == Files.size(file)) return cached;
+
+        SaveFormat.Parsed parsed = SaveFormat.parse(Files.readAllBytes(file));
+        if (parsed.damaged()) {
+            log.warn("存档 " + file + " 自第 " + parsed.valid() + " 字节起损坏，已截掉其后内容");
+            try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                ch.truncate(parsed.valid());
             }
         }
-        return true;
+        Contents contents = new Contents();
+        for (SaveFormat.Record r : parsed.records()) {
+            SaveFormat.In in = r.payload();
+            switch (r.type()) {
+                case RECORD_RECENT -> {
+                    String name = in.string();
+                    contents.recentMap = name.isEmpty() ? null : name;
+                }
+                case RECORD_MAP -> {
+                    Entry e = Entry.read(in);
+                    contents.entries.put(e.mapName, e);
+                }
+                case RECORD_MAP_DELTA -> Entry.readDelta(in, contents.entries);
+                default -> log.warn("忽略未知存档记录类型：" + r.type());
+            }
+        }
+        contents.length = parsed.valid();
+        contents.base = parsed.valid();
+        CACHE.put(username, contents);
+        return contents;
     }
 
     /** 弹窗错误提示 */
@@ -176,78 +184,109 @@ public class Saver {
         return r == JOptionPane.YES_OPTION;
     }
 
-    /** 将 allEntries 写回磁盘 */
-    private static void rewriteEntries(String username, String recentMap, Map<String, Entry> allEntries) {
-        Path file = Paths.get(SAVE_DIR, username + SAVE_EXT);
+    /** 将全部内容写回磁盘 */
+    private static void rewriteEntries(String username, Contents contents) {
         try {
-            List<String> out = new ArrayList<>();
-            out.add(recentMap);
-            for (Entry e : allEntries.values()) {
-                String body = e.toBody();
-                String md5  = e.calculateMd5();
-                out.add("[" + e.mapName + "," + md5 + "]{" + body + "}");
-            }
-            Files.write(file, out, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
-        } catch (Exception ex) {
+            write(username, contents);
+        } catch (IOException ex) {
+            CACHE.remove(username);
             log.error("修正存档失败：" + ex.getMessage());
             showError("修正存档失败：" + ex.getMessage());
         }
     }
 
-    /** 加载所有条目到内存 */
-    private static Map<String, Entry> loadEntries(String username) {
+    /**
+     * 编码全部内容（每张地图一条完整记录），先写入临时文件再原子替换，写入中断时旧存档保持完整
+     */
+    private static void write(String username, Contents contents) throws IOException {
+        Files.createDirectories(Paths.get(SAVE_DIR));
         Path file = Paths.get(SAVE_DIR, username + SAVE_EXT);
-        if (!Files.exists(file)) return new LinkedHashMap<>();
-        Map<String, Entry> all = new LinkedHashMap<>();
-        try {
-            List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
-            for (int i = 1; i < lines.size(); i++) {
-                String ln = lines.get(i);
-                int b1 = ln.indexOf('['), b2 = ln.indexOf(']');
-                String[] meta = ln.substring(b1+1, b2).split(",",2);
-                String body = ln.substring(ln.indexOf('{')+1, ln.lastIndexOf('}'));
-                all.put(meta[0], Entry.fromBody(meta[0], body));
-            }
-        } catch (Exception ex) {
-            log.error("加载存档条目失败：" + ex.getMessage());
+        SaveFormat.Out out = new SaveFormat.Out();
+        byte[] header = SaveFormat.header();
+        out.bytes(header, 0, header.length);
+        SaveFormat.Out payload = new SaveFormat.Out();
+        payload.string(contents.recentMap == null ? "" : contents.recentMap);
+        SaveFormat.frame(out, RECORD_RECENT, payload);
+        for (Entry e : contents.entries.values()) {
+            payload = new SaveFormat.Out();
+            e.write(payload);
+            SaveFormat.frame(out, RECORD_MAP, payload);
         }
-        return all;
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(tmp, out.toByteArray());
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        contents.length = out.size;
+        contents.base = out.size;
+        CACHE.put(username, contents);
     }
 
-    /** 校验 MD5 并提示/修正 */
-    private static void validateMd5(String username, String recentMap, Map<String, Entry> all,
-                                    Entry target, String storedMd5, GameMap map) throws Exception {
-        String currentMd5 = target.calculateMd5();
-        if (!storedMd5.equals(currentMd5)) {
-            if (!confirm("行 MD5 不匹配，是否继续？")) {
-                throw new SecurityException("行 MD5 不匹配");
-            }
-            rewriteEntries(username, recentMap, all);
+    /**
+     * 在存档末尾追加已分帧的记录；追加量超过上次完整写入的大小时安排后台压实
+     */
+    private static void append(String username, Contents contents, SaveFormat.Out records) throws IOException {
+        Path file = Paths.get(SAVE_DIR, username + SAVE_EXT);
+        Files.write(file, records.toByteArray(), StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        contents.length += records.size;
+        long appended = contents.length - contents.base;
+        if (appended >= COMPACT_MIN_BYTES && appended > contents.base) {
+            COMPACTOR.execute(() -> compact(username, contents));
         }
-        // 地图 MD5 校验
-        if (!map.getMd5().equals(target.mapMd5)) {
-            if (!confirm("地图 MD5 不匹配，是否继续？")) {
-                throw new SecurityException("地图 MD5 不匹配");
+    }
+
+    // 后台压实：存档仍是排队时的那份内容才重写，期间已被重置或改写则放弃
+    private static void compact(String username, Contents contents) {
+        synchronized (LOCK) {
+            Path file = Paths.get(SAVE_DIR, username + SAVE_EXT);
+            try {
+                if (CACHE.get(username) != contents || !Files.exists(file)
+                        || Files.size(file) != contents.length || contents.length == contents.base) {
+                    return;
+                }
+                long before = contents.length;
+                write(username, contents);
+                log.info("已压实存档：" + username + "，" + before + " -> " + contents.length + " 字节");
+            } catch (IOException ex) {
+                log.error("压实存档失败：" + ex.getMessage());
             }
-            target.mapMd5 = map.getMd5();
-            rewriteEntries(username, recentMap, all);
         }
     }
 
-    /** 验证移动历史有效步数 */
-    private static int validateHistory(Board board, List<MoveEntry> history) {
-        board.reset();
-        Board copy = board.copy();
-        int count = 0;
-        for (MoveEntry me : history) {
-            Block b = copy.getBlocks().stream()
-                    .filter(x -> x.getId() == me.blockId())
-                    .findFirst().orElse(null);
-            if (b != null && copy.moveBlock(b, me.dir())) {
-                count++;
+    /**
+     * 把旧版文本存档单向迁移为二进制格式，原文件改名为 .sav.bak。
+     * 旧格式第一行为最近游戏地图名称或 "null"，后续每行为 [mapName,md5]{body}；
+     * 格式不符或行 MD5 不匹配的条目记录日志后丢弃
+     * @return 存在旧版存档并已迁移时返回 true
+     */
+    private static boolean migrate(String username) throws IOException {
+        Path legacy = Paths.get(SAVE_DIR, username + LEGACY_EXT);
+        if (!Files.exists(legacy)) return false;
+        List<String> lines = Files.readAllLines(legacy, StandardCharsets.UTF_8);
+        Contents contents = new Contents();
+        if (!lines.isEmpty() && !lines.get(0).equals("null")) contents.recentMap = lines.get(0);
+        for (int i = 1; i < lines.size(); i++) {
+            String ln = lines.get(i).trim();
+            if (!ln.matches("^\\[[^,]+,[0-9A-Fa-f]{32}]\\{.+}$")) {
+                log.warn("迁移存档：第" + (i + 1) + "行格式不符，已丢弃");
+                continue;
+            }
+            int b1 = ln.indexOf('['), b2 = ln.indexOf(']');
+            String[] meta = ln.substring(b1 + 1, b2).split(",", 2);
+            String body = ln.substring(ln.indexOf('{') + 1, ln.lastIndexOf('}'));
+            try {
+                if (!meta[1].equalsIgnoreCase(md5Hex(body))) {
+                    log.warn("迁移存档：第" + (i + 1) + "行 MD5 不匹配，已丢弃");
+                    continue;
+                }
+                Entry e = Entry.fromBody(meta[0], body);
+                contents.entries.put(e.mapName, e);
+            } catch (Exception ex) {
+                log.warn("迁移存档：第" + (i + 1) + "行解析失败，已丢弃：" + ex.getMessage());
             }
         }
-        return count;
+        write(username, contents);
+        Files.move(legacy, legacy.resolveSibling(legacy.getFileName() + ".bak"), StandardCopyOption.REPLACE_EXISTING);
+        log.info("已将旧版存档迁移为二进制格式：" + username);
+        return true;
     }
 
     /** 保存游戏结果或进度
@@ -258,31 +297,41 @@ public class Saver {
                                      boolean inGame, String mode,
                                      List<MoveEntry> history, long elapsed,
                                      String recentMapName) {
-        try {
-            Files.createDirectories(Paths.get(SAVE_DIR));
-            Path file = Paths.get(SAVE_DIR, username + SAVE_EXT);
-            Map<String, Entry> all = loadEntries(username);
-            Entry e = all.getOrDefault(map.getName(), new Entry(map.getName(), map.getMd5()));
-            e.update(completedCount, bestTime, bestMoves, inGame, mode, history, elapsed);
-            all.put(map.getName(), e);
-
-            // 写入
-            List<String> out = new ArrayList<>();
-            out.add(recentMapName == null ? "null" : recentMapName);
-            for (Entry en : all.values()) {
-                String body = en.toBody();
-                String md5;
-                try {
-                    md5 = en.calculateMd5();
-                } catch (Exception ex) {
-                    throw new RuntimeException(ex);
+        synchronized (LOCK) {
+            try {
+                Contents contents = read(username);
+                if (contents == null) {
+                    contents = new Contents();
+                    Entry e = new Entry(map.getName(), map.getMd5());
+                    e.update(completedCount, bestTime, bestMoves, inGame, mode, history, elapsed);
+                    contents.entries.put(map.getName(), e);
+                    contents.recentMap = recentMapName;
+                    write(username, contents);
+                    return;
+                }
+                // 只追加变化：与已存历史的公共前缀保留，其后的走法作为增量写入
+                Entry e = contents.entries.get(map.getName());
+                if (e == null) {
+                    e = new Entry(map.getName(), map.getMd5());
+                    contents.entries.put(map.getName(), e);
                 }
-                out.add("[" + en.mapName + "," + md5 + "]{" + body + "}");
+                int keep = e.commonPrefix(history);
+                e.update(completedCount, bestTime, bestMoves, inGame, mode, history, elapsed);
+                SaveFormat.Out out = new SaveFormat.Out();
+                SaveFormat.Out payload = new SaveFormat.Out();
+                e.writeDelta(payload, keep);
+                SaveFormat.frame(out, RECORD_MAP_DELTA, payload);
+                if (!Objects.equals(contents.recentMap, recentMapName)) {
+                    payload = new SaveFormat.Out();
+                    payload.string(recentMapName == null ? "" : recentMapName);
+                    SaveFormat.frame(out, RECORD_RECENT, payload);
+                    contents.recentMap = recentMapName;
+                }
+                append(username, contents, out);
+            } catch (IOException ex) {
+                CACHE.remove(username);
+                log.error("保存存档失败：" + ex.getMessage());
             }
-            Files.write(file, out, StandardCharsets.UTF_8,
-                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
-        } catch (IOException ex) {
-            log.error("保存存档失败：" + ex.getMessage());
         }
     }
 
@@ -300,26 +349,51 @@ public class Saver {
                 true, mode, history, elapsed, map.getName());
     }
 
-    /** 删除用户全部存档 */
+    /** 删除用户全部存档（含尚未迁移的旧版存档） */
     public static void resetAllSaves(String username) throws IOException {
-        Path file = Paths.get(SAVE_DIR, username + SAVE_EXT);
-        Files.deleteIfExists(file);
+        synchronized (LOCK) {
+            CACHE.remove(username);
+            Files.deleteIfExists(Paths.get(SAVE_DIR, username + SAVE_EXT));
+            Files.deleteIfExists(Paths.get(SAVE_DIR, username + LEGACY_EXT));
+        }
     }
 
     /** 获取最近打开的地图名称 */
     public static String getRecentMapName(String username) {
-        Path file = Paths.get(SAVE_DIR, username + SAVE_EXT);
-        if (!Files.exists(file)) return null;
-        try {
-            List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
-            return lines.isEmpty() ? null : lines.get(0);
-        } catch (IOException e) {
-            return null;
+        synchronized (LOCK) {
+            try {
+                Contents contents = read(username);
+                return contents == null ? null : contents.recentMap;
+            } catch (IOException e) {
+                return null;
+            }
+        }
+    }
+
+    // 旧版文本存档的行 MD5（十六进制）
+    private static String md5Hex(String body) throws Exception {
+        MessageDigest md = MessageDigest.getInstance("MD5");
+        byte[] digest = md.digest(body.getBytes(StandardCharsets.UTF_8));
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest) {
+            hex.append(String.format("%02x", b));
         }
+        return hex.toString();
     }
 
-    /** 单条存档模型 */
+    /**
+     * 单条存档模型。
+     * <p>二进制负载依次为：地图名、地图 MD5（0 或 16 字节）、完成次数、最佳用时、最佳步数（均为 varint）、
+     * 标志字节（bit0 为 inGame）、模式、已用时、步数、方块 ID 位宽，最后是打包的历史移动：
+     * 每步占 ID 位宽 + 2 位（低 2 位为方向序号），低位在前连续存放。
+     * 方块 ID 位宽按记录内最大 ID 取定，经典布局为 4 位，即每步 6 位。</p>
+     * <p>增量记录的字段与完整记录相同，只在步数之前多一个 keep（varint）：
+     * 重放时保留已存历史的前 keep 步，再接上记录中的走法。</p>
+     * <p>历史在首次访问时才解包，统计查询与改写其他地图的存档都不必展开历史。</p>
+     */
     private static class Entry {
+        private static final Block.Direction[] DIRECTIONS = Block.Direction.values();
+
         String mapName;
         String mapMd5;
         int completedCount;
@@ -329,7 +403,11 @@ public class Saver {
         String mode;
         int movesSoFar;
         long elapsedSoFar;
-        List<MoveEntry> history = new ArrayList<>();
+        /** 已解包的历史；为 null 时以 packed 为准 */
+        private List<MoveEntry> history = new ArrayList<>();
+        /** 打包的历史及其方块 ID 位宽 */
+        private byte[] packed;
+        private int idBits;
 
         Entry(String mapName, String mapMd5) {
             this.mapName = mapName;
@@ -348,34 +426,150 @@ public class Saver {
             this.elapsedSoFar   = elapsed;
         }
 
-        String toBody() {
-            StringBuilder sb = new StringBuilder();
-            sb.append(mapMd5).append(",")
-                    .append(completedCount).append(",")
-                    .append(bestTime).append(",")
-                    .append(bestMoves).append(",")
-                    .append(inGame).append(",")
-                    .append(mode).append(",")
-                    .append(movesSoFar).append(",")
-                    .append(elapsedSoFar).append(",");
-            for (MoveEntry me : history) {
-                sb.append(me.blockId()).append(":")
-                        .append(me.dir().name()).append(";");
+        /** 历史移动，按需解包 */
+        List<MoveEntry> history() {
+            if (history == null) history = unpack(packed, idBits, movesSoFar);
+            return history;
+        }
+
+        /** 已存历史与 next 的公共前缀长度 */
+        int commonPrefix(List<MoveEntry> next) {
+            List<MoveEntry> cur = history();
+            int n = Math.min(cur.size(), next.size()), k = 0;
+            while (k < n && cur.get(k).equals(next.get(k))) k++;
+            return k;
+        }
+
+        /** 完整记录 */
+        void write(SaveFormat.Out out) {
+            writeFields(out);
+            if (history == null) {
+                out.varint(movesSoFar);
+                out.u8(idBits);
+                out.bytes(packed, 0, packed.length);
+            } else {
+                pack(history, out);
             }
-            return sb.toString();
         }
 
-        String calculateMd5() throws Exception {
-            MessageDigest md = MessageDigest.getInstance("MD5");
-            byte[] data = toBody().getBytes(StandardCharsets.UTF_8);
-            byte[] digest = md.digest(data);
-            StringBuilder hex = new StringBuilder();
-            for (byte b : digest) {
-                hex.append(String.format("%02x", b));
+        /** 增量记录：只写前 keep 步之后的走法 */
+        void writeDelta(SaveFormat.Out out, int keep) {
+            writeFields(out);
+            out.varint(keep);
+            pack(history().subList(keep, movesSoFar), out);
+        }
+
+        static Entry read(SaveFormat.In in) throws IOException {
+            Entry e = readFields(in);
+            e.movesSoFar = in.varint();
+            e.idBits     = in.u8();
+            e.packed     = in.bytes(packedLength(e.movesSoFar, e.idBits));
+            e.history    = null;
+            return e;
+        }
+
+        /** 把增量记录叠加到已读出的条目上；与已存历史对不上的记录记录日志后忽略 */
+        static void readDelta(SaveFormat.In in, Map<String, Entry> entries) throws IOException {
+            Entry e = readFields(in);
+            int keep = in.varint();
+            int count = in.varint();
+            int bits = in.u8();
+            List<MoveEntry> tail = unpack(in.bytes(packedLength(count, bits)), bits, count);
+            Entry prev = entries.get(e.mapName);
+            // 被取代的条目不再使用，直接在其历史上截断并续接，重放代价只与增量大小成正比
+            List<MoveEntry> base = prev == null ? new ArrayList<>() : prev.history();
+            if (keep < 0 || keep > base.size()) {
+                log.warn("忽略与已存历史不符的增量存档记录：" + e.mapName);
+                return;
+            }
+            base.subList(keep, base.size()).clear();
+            base.addAll(tail);
+            e.history = base;
+            e.movesSoFar = base.size();
+            entries.put(e.mapName, e);
+        }
+
+        private void writeFields(SaveFormat.Out out) {
+            out.string(mapName);
+            byte[] md5 = parseHex(mapMd5);
+            out.varint(md5.length);
+            out.bytes(md5, 0, md5.length);
+            out.varint(completedCount);
+            out.varint(bestTime);
+            out.varint(bestMoves);
+            out.u8(inGame ? 1 : 0);
+            out.string(mode == null ? "" : mode);
+            out.varint(elapsedSoFar);
+        }
+
+        private static Entry readFields(SaveFormat.In in) throws IOException {
+            String mapName = in.string();
+            byte[] md5 = in.bytes(in.varint());
+            Entry e = new Entry(mapName, md5.length == 0 ? null : HexFormat.of().formatHex(md5));
+            e.completedCount = in.varint();
+            e.bestTime       = in.varlong();
+            e.bestMoves      = in.varint();
+            e.inGame         = (in.u8() & 1) != 0;
+            String mode      = in.string();
+            e.mode           = mode.isEmpty() ? null : mode;
+            e.elapsedSoFar   = in.varlong();
+            return e;
+        }
+
+        // 写入步数、ID 位宽与打包的走法
+        private static void pack(List<MoveEntry> moves, SaveFormat.Out out) {
+            int maxId = 1;
+            for (MoveEntry me : moves) {
+                if (me.blockId() < 0) throw new IllegalArgumentException("方块 ID 非法：" + me.blockId());
+                maxId = Math.max(maxId, me.blockId());
+            }
+            int bits = 32 - Integer.numberOfLeadingZeros(maxId);
+            int width = bits + 2;
+            byte[] buf = new byte[(int) (((long) moves.size() * width + 7) >>> 3)];
+            long bit = 0;
+            for (MoveEntry me : moves) {
+                int v = me.blockId() << 2 | me.dir().ordinal();
+                for (int j = 0; j < width; j++, bit++) {
+                    if ((v >>> j & 1) != 0) buf[(int) (bit >>> 3)] |= (byte) (1 << (bit & 7));
+                }
+            }
+            out.varint(moves.size());
+            out.u8(bits);
+            out.bytes(buf, 0, buf.length);
+        }
+
+        private static List<MoveEntry> unpack(byte[] packed, int bits, int count) {
+            int width = bits + 2;
+            List<MoveEntry> list = new ArrayList<>(count);
+            long bit = 0;
+            for (int k = 0; k < count; k++, bit += width) {
+                int v = 0;
+                for (int j = 0; j < width; j++) {
+                    long p = bit + j;
+                    v |= ((packed[(int) (p >>> 3)] >>> (p & 7)) & 1) << j;
+                }
+                list.add(new MoveEntry(v >>> 2, DIRECTIONS[v & 3]));
+            }
+            return list;
+        }
+
+        // 打包后的字节数，字段越界时视为记录损坏
+        private static int packedLength(int count, int bits) throws IOException {
+            if (count < 0 || bits < 1 || bits > 30) throw new IOException("存档记录字段非法");
+            return (int) (((long) count * (bits + 2) + 7) >>> 3);
+        }
+
+        // 32 位十六进制 MD5 转为 16 字节，缺失或格式不符时为空数组
+        private static byte[] parseHex(String hex) {
+            if (hex == null || hex.length() != 32) return new byte[0];
+            try {
+                return HexFormat.of().parseHex(hex);
+            } catch (IllegalArgumentException ex) {
+                return new byte[0];
             }
-            return hex.toString();
         }
 
+        /** 解析旧版文本存档的条目正文，仅用于迁移 */
         static Entry fromBody(String mapName, String body) {
             String[] ps = body.split(",", 9);
             Entry e = new Entry(mapName, ps[0]);
@@ -396,11 +590,12 @@ public class Saver {
                     e.history.add(new MoveEntry(id, dir));
                 }
             }
+            e.movesSoFar = e.history.size();
             return e;
         }
 
         void truncateHistory(int validCount) {
-            this.history = this.history.subList(0, validCount);
+            this.history = new ArrayList<>(history().subList(0, validCount));
             this.movesSoFar   = validCount;
             this.elapsedSoFar = validCount * 1000L;
         }
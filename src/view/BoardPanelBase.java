@@ -34,6 +34,20 @@ public class BoardPanelBase extends JPanel {
         put(Block.Type.LARGE, new Color(0xF2F3B2));      // 大方块
     }};
 
+    /** 绘制用的颜色与笔触常量，避免每帧新建对象 */
+    protected static final Color VICTORY_COLOR = new Color(0xE6F4EA);
+    protected static final Color FRAME_COLOR = new Color(0xDDDDDD);
+    protected static final Color DEFAULT_COLOR = new Color(0xCCCCCC);
+    protected static final Color EDGE_COLOR = new Color(0x888888);
+    protected static final Color TEXT_COLOR = new Color(0x333333);
+    protected static final BasicStroke FRAME_STROKE = new BasicStroke(2);
+    protected static final BasicStroke FOCUS_STROKE = new BasicStroke(3);
+    protected static final BasicStroke EDGE_STROKE = new BasicStroke(1.5f);
+
+    /** 方块标签字体缓存，格子尺寸变化时才重新派生 */
+    private Font labelFont;
+    private int labelFontCell = -1;
+
     /** 名称列表：小方块的标签 */
     protected final List<String> smallNames       = List.of("卒");
     /** 横向方块的标签列表 */
@@ -92,7 +106,7 @@ public class BoardPanelBase extends JPanel {
         int xOffset = (getWidth() - boardW) / 2, yOffset = (getHeight() - boardH) / 2;
 
         // 绘制胜利区背景
-        g2.setColor(new Color(0xE6F4EA));
+        g2.setColor(VICTORY_COLOR);
         for (Point p : board.getVictoryCells()) {
             int x = xOffset + p.y * cellSize;
             int y = yOffset + p.x * cellSize;
@@ -100,8 +114,8 @@ public class BoardPanelBase extends JPanel {
         }
 
         // 绘制棋盘外框
-        g2.setColor(new Color(0xDDDDDD));
-        g2.setStroke(new BasicStroke(2));
+        g2.setColor(FRAME_COLOR);
+        g2.setStroke(FRAME_STROKE);
         g2.drawRoundRect(xOffset, yOffset, boardW, boardH, 16, 16);
 
         // 遍历所有方块并绘制
@@ -109,25 +123,24 @@ public class BoardPanelBase extends JPanel {
             // 跳过指定方块
             if (b == skipBlock) continue;
 
-            Point pos = b.getPosition();
-            int x = xOffset + pos.y * cellSize;
-            int y = yOffset + pos.x * cellSize;
-            int w = b.getSize().width * cellSize;
-            int h = b.getSize().height * cellSize;
+            int x = xOffset + b.getCol() * cellSize;
+            int y = yOffset + b.getRow() * cellSize;
+            int w = b.getWidth() * cellSize;
+            int h = b.getHeight() * cellSize;
 
             // 方块填充
-            g2.setColor(typeColor.getOrDefault(b.getType(), new Color(0xCCCCCC)));
+            g2.setColor(typeColor.getOrDefault(b.getType(), DEFAULT_COLOR));
             g2.fillRoundRect(x + 4, y + 4, w - 8, h - 8, 16, 16);
 
             // 边框描边
             if (b.equals(board.getFocused())) {
                 // 焦点方块使用红色粗边
                 g2.setColor(Color.RED);
-                g2.setStroke(new BasicStroke(3));
+                g2.setStroke(FOCUS_STROKE);
             } else {
                 // 普通方块灰色细边
-                g2.setColor(new Color(0x888888));
-                g2.setStroke(new BasicStroke(1.5f));
+                g2.setColor(EDGE_COLOR);
+                g2.setStroke(EDGE_STROKE);
             }
             g2.drawRoundRect(x + 4, y + 4, w - 8, h - 8, 16, 16);
 
@@ -145,21 +158,25 @@ public class BoardPanelBase extends JPanel {
     }
 
     void paintTextInBlock(Block b, List<String> names, int cellSize, Graphics2D g2, int x, int w, int y, int h) {
-        // 确定当前方块在同类型列表中的序号
-        List<Block> sameTypeBlocks = board.getBlocks().stream()
-                .filter(block -> block.getType() == b.getType())
-                .toList();
-        int idx = sameTypeBlocks.indexOf(b);
+        // 确定当前方块在同类型方块中的序号
+        int idx = 0;
+        for (Block block : board.getBlocks()) {
+            if (block == b) break;
+            if (block.getType() == b.getType()) idx++;
+        }
         String label = names.get(idx % names.size());
 
         // 设置字体并测量尺寸
-        Font font = getFont().deriveFont(Font.BOLD, cellSize * 0.4f);
-        g2.setFont(font);
+        if (labelFontCell != cellSize) {
+            labelFont = getFont().deriveFont(Font.BOLD, cellSize * 0.4f);
+            labelFontCell = cellSize;
+        }
+        g2.setFont(labelFont);
         FontMetrics fm = g2.getFontMetrics();
         int tw = fm.stringWidth(label), th = fm.getAscent();
 
         // 绘制文本
-        g2.setColor(new Color(0x333333));
+        g2.setColor(TEXT_COLOR);
         g2.drawString(label, x + (w - tw) / 2, y + (h + th) / 2 - 4);
     }
 
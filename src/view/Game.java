@@ -3,6 +3,11 @@ package view;
 import model.Block;
 import model.Board;
 import model.GameMap;
+import solver.DistanceTable;
+import solver.HintService;
+import solver.HistoryOptimizer;
+import solver.ParTable;
+import util.Config;
 import util.Saver;
 import util.UserController;
 
@@ -15,6 +20,7 @@ import java.awt.event.MouseEvent;
 import java.io.IOException;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CancellationException;
 
 /**
  * 游戏主面板（包含顶部导航栏和游戏控制逻辑）
@@ -51,13 +57,27 @@ public class Game extends JPanel {
 
     private JPanel controlPanel;                      // 右侧控制面板
     private boolean isControlPanelVisible = false;    // 控制面板显隐
+    private final HintService hints;                  // 提示服务
+    private JLabel hintLabel;                         // 提示显示
+    private JSlider timeline;                         // 走法时间线滑块
+    private boolean syncingTimeline = false;          // 正在按棋盘同步滑块，忽略其事件
+    private final int moveLimit;                      // 本局步数限制，开局时确定
+    private final int timeLimit;                      // 本局时间限制（秒），开局时确定
+    private int needed = -1;                          // 限步模式下到胜利的最少剩余步数，未知为 -1，无解为 DistanceTable.NO_SOLUTION
 
     /** 构造函数：初始化数据、加载历史统计，并构建界面 */
     public Game(Basic basic, GameMap map, Mode mode) {
         this.basic = basic;
         this.map = map;
         this.mode = mode;
+        // 限时/限步模式按最优解推导限制（每个地图版本只求解一次，在后台进行，就绪前沿用地图文件中的限制）
+        if (mode != Mode.NORMAL && Config.getInstance().getBoolean("autoPar") && !map.hasDerivedLimits()) applyPar();
+        this.moveLimit = map.getMoveLimit();
+        this.timeLimit = map.getTimeLimit();
         this.board = new Board(map);
+        this.hints = new HintService(map, board);
+        // 限步模式需要每步查询精确剩余步数，提前在后台准备距离表（超出求解规模时提示服务自行退回搜索）
+        if (mode == Mode.MOVE_LIMIT) hints.prepareTable();
 
         // 从存档读取统计
         Optional<Saver.Stats> opt = Saver.getStats(
@@ -77,6 +97,20 @@ public class Game extends JPanel {
         initUI();
     }
 
+    /**
+     * 按地图的最少步数推导限制：已记录时在开局前直接应用；否则在后台求解，
+     * 结果只写入地图供之后的对局使用，本局的限制在开局时已确定，不会中途改变
+     */
+    private void applyPar() {
+        ParTable par = ParTable.getInstance();
+        Integer known = par.recorded(map);
+        if (known != null) {
+            par.apply(map, known);
+            return;
+        }
+        par.optimalAsync(map).thenAccept(length -> SwingUtilities.invokeLater(() -> par.apply(map, length)));
+    }
+
     /** 初始化界面布局与定时器 */
     private void initUI() {
         setLayout(new BorderLayout());
@@ -158,11 +192,13 @@ public class Game extends JPanel {
         // 重玩
         JButton replay=new JButton("重玩"); replay.addActionListener(e->replay()); right.add(replay);
         // 撤销
-        JButton undo=new JButton("撤销"); undo.addActionListener(e->{ if(board.undo()){panel.repaint();} else Toolkit.getDefaultToolkit().beep(); panel.requestFocusInWindow(); }); right.add(undo);
+        JButton undo=new JButton("撤销"); undo.addActionListener(e->{ if(board.undo()){clearHint();updateTimeLabel();panel.repaint();} else Toolkit.getDefaultToolkit().beep(); panel.requestFocusInWindow(); }); right.add(undo);
+        // 重做
+        JButton redo=new JButton("重做"); redo.addActionListener(e->{ if(board.redo()){clearHint();updateTimeLabel();panel.repaint();} else Toolkit.getDefaultToolkit().beep(); panel.requestFocusInWindow(); }); right.add(redo);
         // 控制
         JButton ctrl=new JButton("按钮"); ctrl.addActionListener(e->{toggleControlPanel();panel.requestFocusInWindow();}); right.add(ctrl);
         // 步数
-        movesLabel=new JLabel("步数: " + board.getHistory().size()); movesLabel.setFont(new Font("微软雅黑",Font.PLAIN,14)); right.add(movesLabel);
+        movesLabel=new JLabel("步数: " + board.getMoveCount()); movesLabel.setFont(new Font("微软雅黑",Font.PLAIN,14)); right.add(movesLabel);
         // 时间
         timeLabel=new JLabel("00:00"); timeLabel.setFont(new Font("微软雅黑",Font.PLAIN,14)); right.add(timeLabel);
 
@@ -175,6 +211,7 @@ public class Game extends JPanel {
         String user = userController.getCurrentUser().getUsername();
         try {
             long elapsed = Saver.load(board, map, user);
+            clearHint();
             panel.repaint();
             startTime = System.currentTimeMillis() - elapsed;
             if (!clockTimer.isRunning()) clockTimer.start();
@@ -205,7 +242,7 @@ public class Game extends JPanel {
     }
 
     /**
-     * 创建右侧控制窗口（包含方向按钮）
+     * 创建右侧控制窗口（包含方向按钮与提示）
      */
     private JPanel createControlPanel() {
         JPanel cp = new JPanel(new GridBagLayout());
@@ -229,9 +266,94 @@ public class Game extends JPanel {
         left.addActionListener(e -> panel.handleDirection(Block.Direction.LEFT));
         right.addActionListener(e -> panel.handleDirection(Block.Direction.RIGHT));
 
+        JButton hint = new JButton("提示");
+        c.gridx = 0; c.gridy = 3; c.gridwidth = 3; cp.add(hint, c);
+        hintLabel = new JLabel(" ");
+        c.gridy = 4; cp.add(hintLabel, c);
+        hint.addActionListener(e -> requestHint());
+
+        // 时间线滑块：拖动即跳到对应步数，撤销的走法仍可拖回
+        timeline = new JSlider(0, board.getTimelineSize(), board.getMoveCount());
+        timeline.setBackground(Color.WHITE);
+        c.gridy = 5; cp.add(timeline, c);
+        timeline.addChangeListener(e -> {
+            if (syncingTimeline || timeline.getValue() == board.getMoveCount()) return;
+            board.seek(timeline.getValue());
+            clearHint();
+            updateTimeLabel();
+            panel.repaint();
+        });
+
         return cp;
     }
 
+    /**
+     * 在后台计算当前局面的提示，完成后回到 EDT 显示
+     */
+    private void requestHint() {
+        hintLabel.setText("计算中...");
+        hints.request(board).whenComplete((h, ex) -> SwingUtilities.invokeLater(() -> showHint(h, ex)));
+        panel.requestFocusInWindow();
+    }
+
+    /**
+     * 显示提示：聚焦应移动的方块并给出方向与剩余步数
+     */
+    private void showHint(HintService.Hint h, Throwable ex) {
+        if (ex instanceof CancellationException) return;
+        if (ex != null) {
+            hintLabel.setText("提示计算失败");
+            return;
+        }
+        if (h.move() == null) {
+            hintLabel.setText(h.distance() == 0 ? "已到达终点"
+                    : h.distance() == HintService.ABORTED ? "提示计算超出上限" : "当前局面无解");
+            return;
+        }
+        String dir = switch (h.move().dir()) {
+            case UP -> "上";
+            case DOWN -> "下";
+            case LEFT -> "左";
+            case RIGHT -> "右";
+        };
+        board.setFocused(board.findBlockById(h.move().blockId()));
+        hintLabel.setText("向" + dir + "移动，剩余 " + h.distance() + " 步");
+        panel.repaint();
+    }
+
+    /**
+     * 棋盘变化后取消进行中的提示并清空显示，同时重新判断剩余步数、同步时间线滑块
+     */
+    private void clearHint() {
+        hints.cancel();
+        if (hintLabel != null) hintLabel.setText(" ");
+        checkBudget();
+        syncTimeline();
+    }
+
+    /**
+     * 按棋盘的时间线长度与当前步数更新滑块
+     */
+    private void syncTimeline() {
+        if (timeline == null) return;
+        syncingTimeline = true;
+        timeline.setMaximum(board.getTimelineSize());
+        timeline.setValue(board.getMoveCount());
+        syncingTimeline = false;
+    }
+
+    /**
+     * 限步模式下查询当前局面到胜利的精确步数，剩余步数不足或局面无解时立即把步数栏标红
+     * （撤销会退回步数，因此超出预算的局面仍可挽回，不直接判负）
+     */
+    private void checkBudget() {
+        if (mode != Mode.MOVE_LIMIT || movesLabel == null) return;
+        needed = hints.distance(board);
+        int left = moveLimit - board.getMoveCount();
+        // 无解的 NO_SOLUTION 为 int 最大值，同样视为超出预算
+        movesLabel.setForeground(needed > left ? Color.RED : Color.BLACK);
+    }
+
     /**
      * 更新顶部时间和步数，并检查限时/限步失败
      */
@@ -242,10 +364,9 @@ public class Game extends JPanel {
         String timeText = String.format("%02d:%02d", min, sec);
 
         if (mode == Mode.TIME_LIMIT) {
-            int limit = map.getTimeLimit();
-            timeText += String.format("/%02d:%02d", limit / 60, limit % 60);
-            if (elapsed > limit * 1000L) {
-                int mv = board.getHistory().size();
+            timeText += String.format("/%02d:%02d", timeLimit / 60, timeLimit % 60);
+            if (elapsed > timeLimit * 1000L) {
+                int mv = board.getMoveCount();
                 basic.addPanel("failure", new Failure(basic, map, mv, elapsed));
                 replay();
                 clockTimer.stop();
@@ -255,12 +376,15 @@ public class Game extends JPanel {
         }
         timeLabel.setText(timeText);
 
-        int mv = board.getHistory().size();
+        int mv = board.getMoveCount();
         String mvText = "步数: " + mv;
         if (mode == Mode.MOVE_LIMIT) {
-            int lim = map.getMoveLimit();
-            mvText += "/" + lim;
-            if (mv > lim) {
+            mvText += "/" + moveLimit;
+            if (needed < 0 && !hints.isTableUnavailable()) checkBudget();  // 距离表在后台就绪前为未知
+            if (needed == DistanceTable.NO_SOLUTION) mvText += "（当前局面无解，请撤销）";
+            else if (needed >= 0) mvText += "（至少还需 " + needed + " 步）";
+            else if (hints.isTableUnavailable()) mvText += "（地图过大，无距离表，不检查剩余步数）";
+            if (mv > moveLimit) {
                 clockTimer.stop();
                 long el2 = System.currentTimeMillis() - startTime;
                 basic.addPanel("failure", new Failure(basic, map, mv, el2));
@@ -352,6 +476,7 @@ public class Game extends JPanel {
             if (clockTimer != null && !clockTimer.isRunning() && board.isVictory()) return;
             Point oldPos = b.getPosition();
             if (!board.moveBlock(b, dir)) return;
+            clearHint();
 
             Game.this.updateTimeLabel();
             animBlock = b;
@@ -372,7 +497,7 @@ public class Game extends JPanel {
                         clockTimer.stop();
                         completedCount++;
                         long e = System.currentTimeMillis() - startTime;
-                        int mv = board.getHistory().size();
+                        int mv = board.getMoveCount();
                         boolean nt = e < bestTime;
                         boolean nm = mv < bestMoves;
                         bestTime = Math.min(bestTime, e);
@@ -384,7 +509,8 @@ public class Game extends JPanel {
                                     board.getHistory(), e
                             );
                         }
-                        basic.addPanel("victory", new Victory(basic, map, mv, e, nt, nm));
+                        HistoryOptimizer.Result best = HistoryOptimizer.optimize(board, board.getHistory());
+                        basic.addPanel("victory", new Victory(basic, map, mv, e, nt, nm, best.wasted()));
                         basic.showPanel("victory");
                     }
                 }
@@ -410,21 +536,21 @@ public class Game extends JPanel {
                 int ey = yOffset + animEnd.x * cellSize;
                 int x = Math.round(sx + (ex - sx) * frac);
                 int y = Math.round(sy + (ey - sy) * frac);
-                int w = animBlock.getSize().width * cellSize;
-                int h = animBlock.getSize().height * cellSize;
+                int w = animBlock.getWidth() * cellSize;
+                int h = animBlock.getHeight() * cellSize;
 
 
-                g2.setColor(typeColor.getOrDefault(animBlock.getType(), new Color(0xCCCCCC)));
+                g2.setColor(typeColor.getOrDefault(animBlock.getType(), DEFAULT_COLOR));
                 g2.fillRoundRect(x + 4, y + 4, w - 8, h - 8, 16, 16);
 
                 // 描边:如果这是当前焦点块，就再用红色粗线框起来
                 if (animBlock.equals(board.getFocused())) {
                     g2.setColor(Color.RED);
-                    g2.setStroke(new BasicStroke(3));
+                    g2.setStroke(FOCUS_STROKE);
                     g2.drawRoundRect(x + 4, y + 4, w - 8, h - 8, 16, 16);
                 } else {
-                    g2.setColor(new Color(0x888888));
-                    g2.setStroke(new BasicStroke(1.5f));
+                    g2.setColor(EDGE_COLOR);
+                    g2.setStroke(EDGE_STROKE);
                     g2.drawRoundRect(x + 4, y + 4, w - 8, h - 8, 16, 16);
                 }
 
@@ -447,7 +573,7 @@ public class Game extends JPanel {
      * 重置和重新开始游戏
      */
     public void replay() {
-        board.reset(); panel.repaint(); startTime=System.currentTimeMillis();
+        board.reset(); clearHint(); panel.repaint(); startTime=System.currentTimeMillis();
         if (!clockTimer.isRunning()) clockTimer.start();
         panel.requestFocusInWindow();
     }
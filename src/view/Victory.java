@@ -22,7 +22,8 @@ public class Victory extends JPanel {
                    int moves,
                    long elapsed,
                    boolean isNewTimeRecord,
-                   boolean isNewMovesRecord) {
+                   boolean isNewMovesRecord,
+                   int wastedMoves) {
         // 设置面板背景为纯色并在 paintComponent 中绘制
         setOpaque(true);
         setBackground(new Color(255, 255, 255));
@@ -42,7 +43,9 @@ public class Victory extends JPanel {
         add(titleLabel, gbc);
 
         // 步数
-        movesLabel = new JLabel("完成步数：" + moves, SwingConstants.CENTER);
+        String movesText = "完成步数：" + moves;
+        if (wastedMoves > 0) movesText += "（其中 " + wastedMoves + " 步可省去）";
+        movesLabel = new JLabel(movesText, SwingConstants.CENTER);
         movesLabel.setFont(new Font("微软雅黑", Font.PLAIN, 20));
         gbc.gridy = 1;
         add(movesLabel, gbc);